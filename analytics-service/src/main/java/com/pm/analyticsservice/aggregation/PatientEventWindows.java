@@ -0,0 +1,150 @@
+package com.pm.analyticsservice.aggregation;
+
+import com.pm.analyticsservice.dto.MinuteCountsDTO;
+import com.pm.analyticsservice.dto.PatientAnalyticsSnapshotDTO;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Incremental patient event counts in one-minute buckets. State is a ring of
+ * {@code analytics.window.retention-minutes} buckets and at most
+ * {@code analytics.window.max-event-types} distinct types (the rest count as
+ * OTHER), so memory stays bounded whatever the traffic. Sliding windows are sums
+ * of the newest buckets. Readers get the snapshot compacted on the last tick
+ * and never touch the buckets. Parallel writers count into their own
+ * {@link Tally} and {@link #merge} it, taking the lock once per tally rather
+ * than once per event.
+ */
+@Component
+public class PatientEventWindows {
+  static final String OTHER = "OTHER";
+  private static final String REGISTRATION = "PATIENT_CREATED";
+  private static final long MINUTE_MS = 60_000;
+  private static final int[] SLIDING_WINDOWS = {1, 5, 15, 60};
+
+  private static final class Bucket {
+    private long minute = Long.MIN_VALUE;
+    private final Map<String, Long> counts = new HashMap<>();
+  }
+
+  private final Clock clock;
+  private final int retentionMinutes;
+  private final int maxEventTypes;
+  private final Bucket[] buckets;
+  private final Set<String> eventTypes = new HashSet<>();
+  private long lateEvents;
+  private volatile PatientAnalyticsSnapshotDTO snapshot;
+
+  /** Event counts by minute collected by a single thread, see {@link #merge}. */
+  public static final class Tally {
+    private final Map<Long, Map<String, Long>> countsByMinute = new HashMap<>();
+
+    public void add(String eventType, long timestampMs) {
+      countsByMinute.computeIfAbsent(timestampMs / MINUTE_MS, minute -> new HashMap<>())
+              .merge(eventType, 1L, Long::sum);
+    }
+  }
+
+  @Autowired
+  public PatientEventWindows(
+          @Value("${analytics.window.retention-minutes:60}") int retentionMinutes,
+          @Value("${analytics.window.max-event-types:32}") int maxEventTypes
+  ) {
+    this(Clock.systemUTC(), retentionMinutes, maxEventTypes);
+  }
+
+  PatientEventWindows(Clock clock, int retentionMinutes, int maxEventTypes) {
+    this.clock = clock;
+    this.retentionMinutes = retentionMinutes;
+    this.maxEventTypes = maxEventTypes;
+    this.buckets = new Bucket[retentionMinutes];
+    for (int i = 0; i < retentionMinutes; i++) {
+      buckets[i] = new Bucket();
+    }
+    compact();
+  }
+
+  public synchronized void record(String eventType, long timestampMs) {
+    add(clock.millis() / MINUTE_MS, timestampMs / MINUTE_MS, eventType, 1);
+  }
+
+  public synchronized void merge(Tally tally) {
+    long now = clock.millis() / MINUTE_MS;
+    tally.countsByMinute.forEach((minute, counts) ->
+            counts.forEach((eventType, count) -> add(now, minute, eventType, count)));
+  }
+
+  public PatientAnalyticsSnapshotDTO snapshot() {
+    return snapshot;
+  }
+
+  @Scheduled(fixedDelayString = "${analytics.snapshot.interval-ms:1000}")
+  public synchronized void compact() {
+    long now = clock.millis() / MINUTE_MS;
+    List<MinuteCountsDTO> minutes = new ArrayList<>(retentionMinutes);
+    for (long minute = now - retentionMinutes + 1; minute <= now; minute++) {
+      Bucket bucket = buckets[(int) Math.floorMod(minute, (long) retentionMinutes)];
+      Map<String, Long> counts = bucket.minute == minute ? Map.copyOf(bucket.counts) : Map.of();
+      minutes.add(new MinuteCountsDTO(Instant.ofEpochMilli(minute * MINUTE_MS), counts));
+    }
+
+    Map<String, Map<String, Long>> windows = new LinkedHashMap<>();
+    Map<String, Double> registrationRate = new LinkedHashMap<>();
+    for (int size : SLIDING_WINDOWS) {
+      if (size > retentionMinutes) {
+        continue;
+      }
+      Map<String, Long> totals = new HashMap<>();
+      minutes.subList(minutes.size() - size, minutes.size())
+              .forEach(m -> m.counts().forEach((type, count) -> totals.merge(type, count, Long::sum)));
+      windows.put(size + "m", Map.copyOf(totals));
+      registrationRate.put(size + "m", totals.getOrDefault(REGISTRATION, 0L) / (double) size);
+    }
+
+    snapshot = new PatientAnalyticsSnapshotDTO(
+            Instant.ofEpochMilli(clock.millis()),
+            windows,
+            registrationRate,
+            List.copyOf(minutes),
+            lateEvents
+    );
+  }
+
+  private void add(long now, long eventMinute, String eventType, long count) {
+    // clock skew: never let a future timestamp claim a bucket ahead of time
+    long minute = Math.min(eventMinute, now);
+    if (minute <= now - retentionMinutes) {
+      lateEvents += count;
+      return;
+    }
+    Bucket bucket = buckets[(int) Math.floorMod(minute, (long) retentionMinutes)];
+    if (bucket.minute != minute) {
+      bucket.minute = minute;
+      bucket.counts.clear();
+    }
+    bucket.counts.merge(boundedType(eventType), count, Long::sum);
+  }
+
+  private String boundedType(String eventType) {
+    if (eventTypes.contains(eventType)) {
+      return eventType;
+    }
+    if (eventTypes.size() < maxEventTypes) {
+      eventTypes.add(eventType);
+      return eventType;
+    }
+    return OTHER;
+  }
+}
@@ -0,0 +1,24 @@
+package com.pm.analyticsservice.controller;
+
+import com.pm.analyticsservice.aggregation.PatientEventWindows;
+import com.pm.analyticsservice.dto.PatientAnalyticsSnapshotDTO;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@RequestMapping("/analytics")
+public class AnalyticsController {
+  private final PatientEventWindows patientEventWindows;
+
+  public AnalyticsController(PatientEventWindows patientEventWindows) {
+    this.patientEventWindows = patientEventWindows;
+  }
+
+  // served from the precomputed snapshot, no aggregation on the request path
+  @GetMapping("/patients")
+  public ResponseEntity<PatientAnalyticsSnapshotDTO> getPatientAnalytics() {
+    return ResponseEntity.ok(patientEventWindows.snapshot());
+  }
+}
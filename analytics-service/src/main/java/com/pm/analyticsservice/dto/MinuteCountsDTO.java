@@ -0,0 +1,8 @@
+package com.pm.analyticsservice.dto;
+
+import java.time.Instant;
+import java.util.Map;
+
+/** Event counts by type for one tumbling one-minute window. */
+public record MinuteCountsDTO(Instant minute, Map<String, Long> counts) {
+}
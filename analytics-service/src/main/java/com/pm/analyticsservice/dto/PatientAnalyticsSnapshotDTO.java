@@ -0,0 +1,22 @@
+package com.pm.analyticsservice.dto;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Immutable read model rebuilt every analytics.snapshot.interval-ms.
+ *
+ * @param windows                   sliding window ("1m", "5m", ...) to counts by event type
+ * @param registrationRatePerMinute sliding window to PATIENT_CREATED events per minute
+ * @param minutes                   tumbling one-minute windows, oldest first
+ * @param lateEvents                events dropped because they were older than the retention
+ */
+public record PatientAnalyticsSnapshotDTO(
+        Instant generatedAt,
+        Map<String, Map<String, Long>> windows,
+        Map<String, Double> registrationRatePerMinute,
+        List<MinuteCountsDTO> minutes,
+        long lateEvents
+) {
+}
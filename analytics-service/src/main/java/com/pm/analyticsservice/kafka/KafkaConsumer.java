@@ -1,25 +1,94 @@
 package com.pm.analyticsservice.kafka;
 
-import com.google.protobuf.InvalidProtocolBufferException;
+import com.pm.analyticsservice.aggregation.PatientEventWindows;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.kafka.annotation.KafkaListener;
 import org.springframework.stereotype.Service;
-import patient.events.PatientEvent;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 @Service
 public class KafkaConsumer {
 
   private static final Logger log = LoggerFactory.getLogger(KafkaConsumer.class);
+  private final PatientEventWindows patientEventWindows;
+  private final KeyOrderedProcessor keyOrderedProcessor;
+  private final PatientEventReader reader = new PatientEventReader();
+  private final Counter consumed;
+  private final Counter failed;
+  private final DistributionSummary batchSize;
+  private final Timer batchDuration;
+  private final AtomicLong eventLagMs = new AtomicLong();
+
+  public KafkaConsumer(
+          PatientEventWindows patientEventWindows,
+          KeyOrderedProcessor keyOrderedProcessor,
+          MeterRegistry meterRegistry
+  ) {
+    this.patientEventWindows = patientEventWindows;
+    this.keyOrderedProcessor = keyOrderedProcessor;
+    this.consumed = meterRegistry.counter("custom.analytics.records.consumed");
+    this.failed = meterRegistry.counter("custom.analytics.records.failed");
+    this.batchSize = meterRegistry.summary("custom.analytics.batch.size");
+    this.batchDuration = meterRegistry.timer("custom.analytics.batch.duration");
+    // offset lag per partition comes from the client metrics (kafka.consumer.fetch.manager.records.lag*)
+    meterRegistry.gauge("custom.analytics.consumer.event.lag.ms", eventLagMs);
+  }
+
+  // the record timestamp is the event time for the windows; each lane counts into
+  // its own tally, so the windows' lock is taken once per lane instead of per record
+  @KafkaListener(
+          id = "patientEvents",
+          topics = "patient",
+          groupId = "analytics-service",
+          batch = "true",
+          autoStartup = "${analytics.consumer.auto-startup:true}"
+  )
+  public void consumerEvents(List<ConsumerRecord<String, ByteBuffer>> records) {
+    long start = System.nanoTime();
+    keyOrderedProcessor.processLanes(records, LaneTally::new);
+
+    long newest = 0;
+    for (ConsumerRecord<String, ByteBuffer> record : records) {
+      newest = Math.max(newest, record.timestamp());
+    }
+    consumed.increment(records.size());
+    batchSize.record(records.size());
+    eventLagMs.set(System.currentTimeMillis() - newest);
+    batchDuration.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+    log.debug("Processed batch of {} patient events", records.size());
+  }
+
+  private final class LaneTally implements KeyOrderedProcessor.LaneHandler<ByteBuffer> {
+    private final PatientEventWindows.Tally tally = new PatientEventWindows.Tally();
+
+    @Override
+    public void handle(ConsumerRecord<String, ByteBuffer> record) {
+      if (record.value() == null) {
+        return;
+      }
+      try {
+        tally.add(reader.eventType(record.value()), record.timestamp());
+      } catch (IOException e) {
+        failed.increment();
+        log.error("Error deserializing event at {}-{}@{}: {}",
+                record.topic(), record.partition(), record.offset(), e.getMessage());
+      }
+    }
 
-  @KafkaListener(topics = "patient", groupId = "analytics-service")
-  public void consumerEvent(byte[] event) {
-    try {
-      PatientEvent patientEvent = PatientEvent.parseFrom(event);
-      log.info("Patient Event Received: [PatientId={}, PatientName={}, PatientEmail={}]",
-              patientEvent.getPatientId(), patientEvent.getName(), patientEvent.getEmail());
-    } catch (InvalidProtocolBufferException e) {
-      log.error("Error deserializing event {}", e.getMessage());
+    @Override
+    public void finish() {
+      patientEventWindows.merge(tally);
     }
   }
 }
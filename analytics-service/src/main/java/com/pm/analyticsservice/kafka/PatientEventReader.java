@@ -0,0 +1,52 @@
+package com.pm.analyticsservice.kafka;
+
+import com.google.protobuf.ByteString;
+import com.google.protobuf.CodedInputStream;
+import com.google.protobuf.WireFormat;
+import patient.events.PatientEvent;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Reads only the event type out of a serialized PatientEvent. The record value
+ * is a slice of the consumer's fetch buffer; CodedInputStream reads it in place
+ * with aliasing and skips the other fields, so no PatientEvent, name or email
+ * string is built per record. Known event types are interned.
+ */
+final class PatientEventReader {
+  private static final int EVENT_TYPE_TAG =
+          (PatientEvent.EVENT_TYPE_FIELD_NUMBER << 3) | WireFormat.WIRETYPE_LENGTH_DELIMITED;
+  private static final int MAX_INTERNED = 64;
+
+  private final Map<ByteString, String> interned = new ConcurrentHashMap<>();
+
+  String eventType(ByteBuffer value) throws IOException {
+    CodedInputStream input = CodedInputStream.newInstance(value);
+    input.enableAliasing(true);
+    int tag;
+    while ((tag = input.readTag()) != 0) {
+      if (tag == EVENT_TYPE_TAG) {
+        return intern(input.readBytes());
+      }
+      if (!input.skipField(tag)) {
+        break;
+      }
+    }
+    return "";
+  }
+
+  private String intern(ByteString bytes) {
+    String type = interned.get(bytes);
+    if (type == null) {
+      type = bytes.toStringUtf8();
+      if (interned.size() < MAX_INTERNED) {
+        // the aliased bytes belong to the fetch buffer, store a copy as the key
+        interned.put(ByteString.copyFromUtf8(type), type);
+      }
+    }
+    return type;
+  }
+}
@@ -0,0 +1,88 @@
+package com.pm.analyticsservice.aggregation;
+
+import com.pm.analyticsservice.dto.PatientAnalyticsSnapshotDTO;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PatientEventWindowsTests {
+
+	private static final Instant NOW = Instant.parse("2025-01-01T12:30:30Z");
+
+	private final PatientEventWindows windows =
+			new PatientEventWindows(Clock.fixed(NOW, ZoneOffset.UTC), 60, 2);
+
+	@Test
+	void countsSlidingWindowsAndRegistrationRate() {
+		windows.record("PATIENT_CREATED", at(0));
+		windows.record("PATIENT_CREATED", at(3));
+		windows.record("PATIENT_UPDATED", at(3));
+		windows.record("PATIENT_CREATED", at(20));
+		windows.compact();
+
+		PatientAnalyticsSnapshotDTO snapshot = windows.snapshot();
+
+		assertThat(snapshot.windows().get("1m")).containsEntry("PATIENT_CREATED", 1L);
+		assertThat(snapshot.windows().get("5m")).containsEntry("PATIENT_CREATED", 2L)
+				.containsEntry("PATIENT_UPDATED", 1L);
+		assertThat(snapshot.windows().get("60m")).containsEntry("PATIENT_CREATED", 3L);
+		assertThat(snapshot.registrationRatePerMinute().get("5m")).isEqualTo(0.4);
+		assertThat(snapshot.minutes()).hasSize(60);
+		assertThat(snapshot.minutes().get(59).counts()).containsEntry("PATIENT_CREATED", 1L);
+	}
+
+	@Test
+	void dropsEventsOlderThanRetentionAndReusesBuckets() {
+		windows.record("PATIENT_CREATED", at(60));
+		windows.record("PATIENT_CREATED", at(59));
+		windows.compact();
+
+		assertThat(windows.snapshot().lateEvents()).isEqualTo(1);
+		assertThat(windows.snapshot().windows().get("60m")).containsEntry("PATIENT_CREATED", 1L);
+	}
+
+	@Test
+	void boundsDistinctEventTypes() {
+		windows.record("A", at(0));
+		windows.record("B", at(0));
+		windows.record("C", at(0));
+		windows.compact();
+
+		assertThat(windows.snapshot().windows().get("1m"))
+				.containsOnlyKeys("A", "B", PatientEventWindows.OTHER);
+	}
+
+	@Test
+	void mergesTalliesCountedOnOtherThreads() throws InterruptedException {
+		List<Thread> lanes = new ArrayList<>();
+		for (int lane = 0; lane < 4; lane++) {
+			lanes.add(Thread.ofVirtual().start(() -> {
+				PatientEventWindows.Tally tally = new PatientEventWindows.Tally();
+				for (int i = 0; i < 1000; i++) {
+					tally.add("PATIENT_CREATED", at(i % 2));
+				}
+				tally.add("PATIENT_CREATED", at(61));
+				windows.merge(tally);
+			}));
+		}
+		for (Thread lane : lanes) {
+			lane.join();
+		}
+		windows.compact();
+
+		assertThat(windows.snapshot().windows().get("1m")).containsEntry("PATIENT_CREATED", 2000L);
+		assertThat(windows.snapshot().windows().get("5m")).containsEntry("PATIENT_CREATED", 4000L);
+		assertThat(windows.snapshot().lateEvents()).isEqualTo(4);
+	}
+
+	private static long at(int minutesAgo) {
+		return NOW.minus(Duration.ofMinutes(minutesAgo)).toEpochMilli();
+	}
+}
@@ -0,0 +1,113 @@
+package com.pm.analyticsservice.kafka;
+
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.junit.jupiter.api.Test;
+import org.springframework.kafka.listener.BatchListenerFailedException;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowableOfType;
+
+class KeyOrderedProcessorTests {
+
+	@Test
+	void keepsOffsetOrderPerKeyAcrossLanes() {
+		KeyOrderedProcessor processor = new KeyOrderedProcessor(8);
+		List<ConsumerRecord<String, Integer>> records = new ArrayList<>();
+		for (int offset = 0; offset < 2000; offset++) {
+			records.add(new ConsumerRecord<>("patient", 0, offset, "patient-" + (offset % 50), offset));
+		}
+		Map<String, List<Integer>> seen = new ConcurrentHashMap<>();
+		Set<String> threads = ConcurrentHashMap.newKeySet();
+
+		processor.process(records, record -> {
+			threads.add(Thread.currentThread().toString());
+			seen.computeIfAbsent(record.key(), k -> new ArrayList<>()).add(record.value());
+		});
+		processor.shutdown();
+
+		assertThat(seen).hasSize(50);
+		seen.values().forEach(values -> assertThat(values).isSorted().hasSize(40));
+		assertThat(threads).hasSizeGreaterThan(1);
+	}
+
+	@Test
+	void waitsForEveryLaneThenReportsTheEarliestFailedRecord() {
+		KeyOrderedProcessor processor = new KeyOrderedProcessor(4);
+		// "a", "b" and "c" hash to lanes 1, 2 and 3 of 4
+		List<ConsumerRecord<String, Integer>> records = new ArrayList<>();
+		for (int offset = 0; offset < 30; offset++) {
+			records.add(new ConsumerRecord<>("patient", 0, offset, List.of("a", "b", "c").get(offset % 3), offset));
+		}
+		Set<Integer> handled = ConcurrentHashMap.newKeySet();
+		AtomicBoolean slowLaneDone = new AtomicBoolean();
+
+		BatchListenerFailedException failure = catchThrowableOfType(BatchListenerFailedException.class,
+				() -> processor.process(records, record -> {
+					if (record.value() == 7 || record.value() == 5) {
+						throw new IllegalStateException("boom " + record.value());
+					}
+					if (record.value() == 27) {
+						sleep(200);
+						slowLaneDone.set(true);
+					}
+					handled.add(record.value());
+				}));
+		processor.shutdown();
+
+		assertThat(slowLaneDone).isTrue();
+		assertThat(failure.getRecord().offset()).isEqualTo(5);
+		assertThat(failure.getCause()).hasMessage("boom 5");
+		// each failed lane stops at its failure, the healthy one runs to the end
+		assertThat(handled).contains(1, 2, 4, 27).doesNotContain(5, 7, 8, 10);
+		assertThat(handled).hasSize(10 + 2 + 1);
+	}
+
+	@Test
+	void givesEachLaneItsOwnHandlerAndFinishesItAfterAFailure() {
+		KeyOrderedProcessor processor = new KeyOrderedProcessor(4);
+		List<ConsumerRecord<String, Integer>> records = new ArrayList<>();
+		for (int offset = 0; offset < 30; offset++) {
+			records.add(new ConsumerRecord<>("patient", 0, offset, List.of("a", "b", "c").get(offset % 3), offset));
+		}
+		List<List<Integer>> finished = Collections.synchronizedList(new ArrayList<>());
+
+		catchThrowableOfType(BatchListenerFailedException.class,
+				() -> processor.processLanes(records, () -> new KeyOrderedProcessor.LaneHandler<>() {
+					private final List<Integer> seen = new ArrayList<>();
+
+					@Override
+					public void handle(ConsumerRecord<String, Integer> record) {
+						if (record.value() == 7) {
+							throw new IllegalStateException("boom");
+						}
+						seen.add(record.value());
+					}
+
+					@Override
+					public void finish() {
+						finished.add(seen);
+					}
+				}));
+		processor.shutdown();
+
+		assertThat(finished).hasSize(3)
+				.anySatisfy(lane -> assertThat(lane).containsExactly(1, 4))
+				.anySatisfy(lane -> assertThat(lane).hasSize(10).isSorted());
+	}
+
+	private static void sleep(long millis) {
+		try {
+			Thread.sleep(millis);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+}
@@ -0,0 +1,82 @@
+package com.pm.analyticsservice.kafka;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.apache.kafka.clients.producer.KafkaProducer;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.serialization.ByteArraySerializer;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.kafka.config.KafkaListenerEndpointRegistry;
+import org.springframework.kafka.test.EmbeddedKafkaBroker;
+import org.springframework.kafka.test.context.EmbeddedKafka;
+import org.springframework.kafka.test.utils.KafkaTestUtils;
+import patient.events.PatientEvent;
+
+import java.util.Map;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Replay benchmark: fills the patient topic with a backlog, then starts the
+ * listener and measures how fast it catches up. Run with
+ * {@code mvn test -Dtest=PatientEventReplayBenchmarkTests -Dreplay.benchmark=true [-Dreplay.records=N]}.
+ */
+@SpringBootTest(properties = {
+		"spring.kafka.bootstrap-servers=${spring.embedded.kafka.brokers}",
+		"spring.kafka.consumer.auto-offset-reset=earliest",
+		"analytics.consumer.auto-startup=false"
+})
+@EmbeddedKafka(partitions = 3, topics = "patient")
+@EnabledIfSystemProperty(named = "replay.benchmark", matches = "true")
+class PatientEventReplayBenchmarkTests {
+
+	private static final int RECORDS = Integer.getInteger("replay.records", 500_000);
+
+	@Autowired
+	private EmbeddedKafkaBroker broker;
+
+	@Autowired
+	private KafkaListenerEndpointRegistry registry;
+
+	@Autowired
+	private MeterRegistry meterRegistry;
+
+	@Test
+	void catchesUpOnBacklog() throws Exception {
+		Map<String, Object> producerProps = KafkaTestUtils.producerProps(broker);
+		producerProps.put("linger.ms", 20);
+		producerProps.put("batch.size", 262144);
+		try (KafkaProducer<String, byte[]> producer =
+				new KafkaProducer<>(producerProps, new StringSerializer(), new ByteArraySerializer())) {
+			for (int i = 0; i < RECORDS; i++) {
+				String patientId = UUID.randomUUID().toString();
+				PatientEvent event = PatientEvent.newBuilder()
+						.setPatientId(patientId)
+						.setName("Patient " + i)
+						.setEmail("patient" + i + "@example.com")
+						.setEventType(i % 10 == 0 ? "PATIENT_UPDATED" : "PATIENT_CREATED")
+						.build();
+				producer.send(new ProducerRecord<>("patient", patientId, event.toByteArray()));
+			}
+		}
+
+		Counter consumed = meterRegistry.counter("custom.analytics.records.consumed");
+		long start = System.nanoTime();
+		registry.getListenerContainer("patientEvents").start();
+		long deadline = start + 300_000_000_000L;
+		while (consumed.count() < RECORDS && System.nanoTime() < deadline) {
+			Thread.sleep(5);
+		}
+		double seconds = (System.nanoTime() - start) / 1e9;
+
+		System.out.printf("Replayed %d patient events in %.2fs: %.0f records/s, mean batch %.0f records%n",
+				(long) consumed.count(), seconds, consumed.count() / seconds,
+				meterRegistry.summary("custom.analytics.batch.size").mean());
+		assertThat(consumed.count()).isGreaterThanOrEqualTo(RECORDS);
+	}
+}
@@ -0,0 +1,190 @@
+package com.pm.apigateway.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Sinks;
+
+import java.time.Duration;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Upstream GET responses held for a few seconds, and the fetches currently in
+ * flight so identical requests can wait on one of them instead of going
+ * upstream themselves. Freshness follows the upstream Cache-Control, capped at
+ * {@code response-cache.ttl}; expired entries that carry an ETag are kept a
+ * while longer so the next fetch can revalidate them with If-None-Match.
+ * Entries are per gateway instance and shared between callers, so only use
+ * this on routes whose responses do not depend on who asks.
+ */
+@Component
+public class ResponseCache {
+
+  public record Entry(HttpStatusCode status, HttpHeaders headers, byte[] body, long storedAtNanos, long freshUntilNanos) {
+    public boolean isFresh(long nowNanos) {
+      return nowNanos < freshUntilNanos;
+    }
+
+    public String etag() {
+      return headers.getETag();
+    }
+  }
+
+  private final Cache<String, Entry> entries;
+  private final Map<String, Sinks.One<Entry>> inFlight = new ConcurrentHashMap<>();
+  private final boolean enabled;
+  private final Duration maxTtl;
+  private final Counter missCounter;
+  private final Counter revalidatedCounter;
+
+  public ResponseCache(
+          @Value("${response-cache.enabled:true}") boolean enabled,
+          @Value("${response-cache.ttl:2s}") Duration maxTtl,
+          @Value("${response-cache.stale-retention:30s}") Duration staleRetention,
+          @Value("${response-cache.maximum-bytes:16777216}") long maximumBytes,
+          MeterRegistry meterRegistry
+  ) {
+    this.enabled = enabled;
+    this.maxTtl = maxTtl;
+    this.entries = Caffeine.newBuilder()
+            .maximumWeight(maximumBytes)
+            .weigher((String key, Entry entry) -> entry.body().length + key.length())
+            .expireAfter(new Expiry<String, Entry>() {
+              @Override
+              public long expireAfterCreate(String key, Entry entry, long currentTime) {
+                long fresh = Math.max(0, entry.freshUntilNanos() - currentTime);
+                return entry.etag() != null ? fresh + staleRetention.toNanos() : fresh;
+              }
+
+              @Override
+              public long expireAfterUpdate(String key, Entry entry, long currentTime, long currentDuration) {
+                return expireAfterCreate(key, entry, currentTime);
+              }
+
+              @Override
+              public long expireAfterRead(String key, Entry entry, long currentTime, long currentDuration) {
+                return currentDuration;
+              }
+            })
+            .recordStats()
+            .build();
+    CaffeineCacheMetrics.monitor(meterRegistry, entries, "gatewayResponses");
+    this.missCounter = meterRegistry.counter("custom.gateway.response.fetches", "result", "miss");
+    this.revalidatedCounter = meterRegistry.counter("custom.gateway.response.fetches", "result", "revalidated");
+  }
+
+  public static String key(ServerHttpRequest request) {
+    HttpHeaders headers = request.getHeaders();
+    return request.getURI().getRawPath()
+            + '?' + request.getURI().getRawQuery()
+            + '|' + headers.getFirst(HttpHeaders.ACCEPT)
+            + '|' + headers.getFirst(HttpHeaders.ACCEPT_ENCODING);
+  }
+
+  /** Fresh or stale entry for the key, null if there is none or caching is off. */
+  public Entry get(String key) {
+    return enabled ? entries.getIfPresent(key) : null;
+  }
+
+  /**
+   * Registers {@code flight} as the fetch for {@code key}.
+   *
+   * @return null if the caller now leads the fetch, otherwise the flight already under way
+   */
+  public Sinks.One<Entry> joinFlight(String key, Sinks.One<Entry> flight) {
+    return inFlight.putIfAbsent(key, flight);
+  }
+
+  /** Hands the result, or nothing if the fetch failed, to every caller waiting on the flight. */
+  public void finishFlight(String key, Sinks.One<Entry> flight, Entry entry) {
+    inFlight.remove(key, flight);
+    if (entry != null) {
+      flight.tryEmitValue(entry);
+    } else {
+      flight.tryEmitEmpty();
+    }
+  }
+
+  /**
+   * Turns an upstream response into an entry and stores it if Cache-Control
+   * allows. A 304 answering our revalidation refreshes {@code stale} instead.
+   */
+  public Entry store(String key, HttpStatusCode status, HttpHeaders headers, byte[] body, Entry stale, long nowNanos) {
+    if (status.value() == HttpStatus.NOT_MODIFIED.value() && stale != null) {
+      Duration ttl = freshness(headers);
+      HttpHeaders merged = new HttpHeaders();
+      merged.putAll(stale.headers());
+      // a 304 carries the current validators and caching headers
+      headers.forEach((name, values) -> {
+        if (!name.equalsIgnoreCase(HttpHeaders.CONTENT_LENGTH)) {
+          merged.put(name, values);
+        }
+      });
+      Entry refreshed = new Entry(stale.status(), merged, stale.body(), nowNanos,
+              nowNanos + (ttl == null ? 0 : ttl.toNanos()));
+      if (enabled && ttl != null) {
+        entries.put(key, refreshed);
+      }
+      revalidatedCounter.increment();
+      return refreshed;
+    }
+
+    missCounter.increment();
+    Duration ttl = status.value() == HttpStatus.OK.value() ? freshness(headers) : null;
+    Entry entry = new Entry(status, headers, body, nowNanos, nowNanos + (ttl == null ? 0 : ttl.toNanos()));
+    if (enabled && ttl != null && (!ttl.isZero() || entry.etag() != null)) {
+      entries.put(key, entry);
+    }
+    return entry;
+  }
+
+  public void invalidateAll() {
+    entries.invalidateAll();
+  }
+
+  /** How long the response may be served without asking upstream, null if it must not be stored. */
+  private Duration freshness(HttpHeaders headers) {
+    if (headers.containsKey(HttpHeaders.SET_COOKIE)) {
+      return null;
+    }
+    Duration maxAge = null;
+    Duration sharedMaxAge = null;
+    for (String value : headers.getOrEmpty(HttpHeaders.CACHE_CONTROL)) {
+      for (String directive : value.split(",")) {
+        String d = directive.trim().toLowerCase(Locale.ROOT);
+        if (d.equals("no-store") || d.equals("private")) {
+          return null;
+        }
+        if (d.equals("no-cache")) {
+          return Duration.ZERO;
+        }
+        if (d.startsWith("s-maxage=")) {
+          sharedMaxAge = seconds(d.substring(9));
+        } else if (d.startsWith("max-age=")) {
+          maxAge = seconds(d.substring(8));
+        }
+      }
+    }
+    Duration ttl = sharedMaxAge != null ? sharedMaxAge : maxAge;
+    return ttl == null || ttl.compareTo(maxTtl) > 0 ? maxTtl : ttl;
+  }
+
+  private static Duration seconds(String value) {
+    try {
+      return Duration.ofSeconds(Math.max(0, Long.parseLong(value)));
+    } catch (NumberFormatException e) {
+      return Duration.ZERO;
+    }
+  }
+}
@@ -0,0 +1,44 @@
+package com.pm.apigateway.cache;
+
+import com.pm.apigateway.util.JwtUtil;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.Map;
+
+// POST /actuator/tokenrevocation {"token": "<jwt>"}, served on management.server.port only.
+// Tokens are verified first, so only genuine unexpired tokens can be revoked.
+@Component
+@Endpoint(id = "tokenrevocation")
+public class TokenRevocationEndpoint {
+  private final VerifiedTokenCache tokenCache;
+  private final JwtUtil jwtUtil;
+
+  public TokenRevocationEndpoint(VerifiedTokenCache tokenCache, JwtUtil jwtUtil) {
+    this.tokenCache = tokenCache;
+    this.jwtUtil = jwtUtil;
+  }
+
+  @WriteOperation
+  public Map<String, Object> revoke(String token) {
+    if (!jwtUtil.isConfigured()) {
+      throw new IllegalStateException("jwt.secret must be set to revoke tokens");
+    }
+    Claims claims;
+    try {
+      claims = jwtUtil.validateToken(token);
+    } catch (JwtException e) {
+      return Map.of("revoked", false);
+    }
+    if (claims.getExpiration() == null) {
+      return Map.of("revoked", false);
+    }
+    Instant expiresAt = claims.getExpiration().toInstant();
+    tokenCache.revoke(token, expiresAt);
+    return Map.of("revoked", true, "until", expiresAt.toString());
+  }
+}
@@ -0,0 +1,131 @@
+package com.pm.apigateway.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.function.ToLongFunction;
+
+/**
+ * Remembers tokens that already passed validation until their own {@code exp},
+ * together with their subject and role, so repeat requests with the same bearer
+ * token skip validation and the rate limiter can still key them. Revoked tokens
+ * are held in a separate store that has no size bound and is checked even with
+ * the cache disabled, so a revocation only goes away once the token would have
+ * expired anyway. Keys are SHA-256 digests, raw tokens are never held in memory.
+ */
+@Component
+public class VerifiedTokenCache {
+
+  public enum TokenState { VALID, REVOKED, UNKNOWN }
+
+  /** Who a verified token belongs to; either part is null if the token lacks that claim. */
+  public record Principal(String subject, String role) {}
+
+  /** {@code principal} is set for {@link TokenState#VALID} only. */
+  public record Lookup(TokenState state, Principal principal) {
+    static final Lookup REVOKED = new Lookup(TokenState.REVOKED, null);
+    static final Lookup UNKNOWN = new Lookup(TokenState.UNKNOWN, null);
+  }
+
+  private record Verified(Principal principal, long expiresAtMillis) {}
+
+  private final Cache<String, Verified> cache;
+  // only tokens with a valid signature get here, see TokenRevocationEndpoint
+  private final Cache<String, Long> revocations;
+  private final boolean enabled;
+
+  public VerifiedTokenCache(
+          @Value("${jwt.cache.enabled:true}") boolean enabled,
+          @Value("${jwt.cache.maximum-size:10000}") long maximumSize,
+          MeterRegistry meterRegistry
+  ) {
+    this.enabled = enabled;
+    this.cache = Caffeine.newBuilder()
+            .maximumSize(maximumSize)
+            .expireAfter(untilExpiry(Verified::expiresAtMillis))
+            .recordStats()
+            .build();
+    this.revocations = Caffeine.newBuilder()
+            .expireAfter(untilExpiry(Long::longValue))
+            .build();
+    CaffeineCacheMetrics.monitor(meterRegistry, cache, "jwtTokens");
+    meterRegistry.gauge("custom.gateway.jwt.revoked", revocations, Cache::estimatedSize);
+  }
+
+  public Lookup lookup(String token) {
+    String key = digest(token);
+    if (revocations.getIfPresent(key) != null) {
+      return Lookup.REVOKED;
+    }
+    if (!enabled) {
+      return Lookup.UNKNOWN;
+    }
+    Verified verified = cache.getIfPresent(key);
+    return verified != null ? new Lookup(TokenState.VALID, verified.principal()) : Lookup.UNKNOWN;
+  }
+
+  public void putVerified(String token, Principal principal, Instant expiresAt) {
+    if (!enabled || expiresAt == null) {
+      return;
+    }
+    cache.asMap().putIfAbsent(digest(token), new Verified(principal, expiresAt.toEpochMilli()));
+  }
+
+  /**
+   * Rejects the token until {@code expiresAt}, even if its signature is valid.
+   * Revocation is local to this gateway instance. Only call this for tokens
+   * whose signature has been verified, revocations are never evicted early.
+   */
+  public void revoke(String token, Instant expiresAt) {
+    if (expiresAt == null) {
+      return;
+    }
+    String key = digest(token);
+    revocations.put(key, expiresAt.toEpochMilli());
+    cache.invalidate(key);
+  }
+
+  public long estimatedSize() {
+    return cache.estimatedSize();
+  }
+
+  /** Expires each entry at the epoch millis it holds, the token's own {@code exp}. */
+  private static <V> Expiry<String, V> untilExpiry(ToLongFunction<V> expiresAtMillis) {
+    return new Expiry<>() {
+      @Override
+      public long expireAfterCreate(String key, V value, long currentTime) {
+        return Math.max(0, (expiresAtMillis.applyAsLong(value) - System.currentTimeMillis()) * 1_000_000L);
+      }
+
+      @Override
+      public long expireAfterUpdate(String key, V value, long currentTime, long currentDuration) {
+        return expireAfterCreate(key, value, currentTime);
+      }
+
+      @Override
+      public long expireAfterRead(String key, V value, long currentTime, long currentDuration) {
+        return currentDuration;
+      }
+    };
+  }
+
+  private static String digest(String token) {
+    try {
+      byte[] hash = MessageDigest.getInstance("SHA-256")
+              .digest(token.getBytes(StandardCharsets.UTF_8));
+      return Base64.getEncoder().withoutPadding().encodeToString(hash);
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException("SHA-256 not available", e);
+    }
+  }
+}
@@ -1,20 +1,44 @@
 package com.pm.apigateway.config;
 
+import com.pm.apigateway.cache.VerifiedTokenCache.Principal;
+import com.pm.apigateway.filter.RequestPrincipalResolver;
+import com.pm.apigateway.ratelimit.RateLimitKeys;
+import com.pm.apigateway.ratelimit.RateLimitQuotaProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.cloud.gateway.filter.ratelimit.KeyResolver;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.web.server.ServerWebExchange;
 import reactor.core.publisher.Mono;
 
 @Configuration
+@EnableConfigurationProperties(RateLimitQuotaProperties.class)
 public class RateLimiterConfig {
   @Bean
   public KeyResolver ipKeyResolver() {
-    return exchange -> Mono.just(exchange
+    return exchange -> Mono.just(remoteAddress(exchange));
+  }
+
+  // one bucket per authenticated user and role, callers without a valid token share one per IP;
+  // repeat tokens are keyed from VerifiedTokenCache without another signature check
+  @Bean
+  @Primary
+  public KeyResolver principalKeyResolver(RequestPrincipalResolver principalResolver) {
+    return exchange -> {
+      Principal principal = principalResolver.resolve(exchange);
+      if (principal == null || principal.subject() == null || principal.role() == null) {
+        return Mono.just(RateLimitKeys.of(RateLimitKeys.ANONYMOUS, remoteAddress(exchange)));
+      }
+      return Mono.just(RateLimitKeys.of(principal.role(), principal.subject()));
+    };
+  }
+
+  private static String remoteAddress(ServerWebExchange exchange) {
+    return exchange
             .getRequest()
             .getRemoteAddress()
             .getAddress()
-            .getHostAddress()
-    );
+            .getHostAddress();
   }
 }
-
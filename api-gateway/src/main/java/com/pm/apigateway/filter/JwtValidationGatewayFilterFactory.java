@@ -1,5 +1,9 @@
 package com.pm.apigateway.filter;
 
+import com.pm.apigateway.cache.VerifiedTokenCache;
+import com.pm.apigateway.util.JwtUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.cloud.gateway.filter.GatewayFilter;
 import org.springframework.cloud.gateway.filter.factory.AbstractGatewayFilterFactory;
@@ -7,35 +11,77 @@ import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Component;
 import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
 
 @Component
 public class JwtValidationGatewayFilterFactory extends
         AbstractGatewayFilterFactory<Object> {
+  private static final Logger log = LoggerFactory.getLogger(JwtValidationGatewayFilterFactory.class);
 
   private final WebClient webClient;
+  private final JwtUtil jwtUtil;
+  private final JwtValidationMode validationMode;
+  private final VerifiedTokenCache tokenCache;
+  private final RequestPrincipalResolver principalResolver;
 
   public JwtValidationGatewayFilterFactory(
           WebClient.Builder webClientBuilder,
-          @Value("${auth.service.url}") String authServiceUrl
+          @Value("${auth.service.url}") String authServiceUrl,
+          @Value("${jwt.validation.mode:LOCAL}") JwtValidationMode validationMode,
+          JwtUtil jwtUtil,
+          VerifiedTokenCache tokenCache,
+          RequestPrincipalResolver principalResolver
   ) {
+    if (validationMode == JwtValidationMode.LOCAL && !jwtUtil.isConfigured()) {
+      throw new IllegalStateException("jwt.secret must be set when jwt.validation.mode is LOCAL");
+    }
     this.webClient = webClientBuilder.baseUrl(authServiceUrl).build();
+    this.jwtUtil = jwtUtil;
+    this.validationMode = validationMode;
+    this.tokenCache = tokenCache;
+    this.principalResolver = principalResolver;
+    log.info("JWT validation mode: {}", validationMode);
   }
 
   @Override
   public GatewayFilter apply(Object config) {
-    return (exchage, chain) -> {
-      String token = exchage.getRequest().getHeaders().getFirst(HttpHeaders.AUTHORIZATION);
+    return (exchange, chain) -> {
+      String token = exchange.getRequest().getHeaders().getFirst(HttpHeaders.AUTHORIZATION);
       if (token == null || !token.startsWith("Bearer ")) {
-        exchage.getResponse().setStatusCode(HttpStatus.UNAUTHORIZED);
-        return exchage.getResponse().setComplete();
+        return unauthorized(exchange);
       }
+      String jwt = token.substring(7);
 
-      return webClient.get()
-              .uri("/validate")
-              .header(HttpHeaders.AUTHORIZATION, token)
-              .retrieve()
-              .toBodilessEntity()
-              .then(chain.filter(exchage));
+      if (validationMode == JwtValidationMode.REMOTE) {
+        switch (tokenCache.lookup(jwt).state()) {
+          case VALID:
+            return chain.filter(exchange);
+          case REVOKED:
+            return unauthorized(exchange);
+          default:
+            break;
+        }
+        return webClient.get()
+                .uri("/validate")
+                .header(HttpHeaders.AUTHORIZATION, token)
+                .retrieve()
+                .toBodilessEntity()
+                .doOnSuccess(response -> tokenCache.putVerified(jwt, null, jwtUtil.readExpiration(jwt)))
+                .then(chain.filter(exchange));
+      }
+
+      // cached, revoked and freshly verified tokens alike; the rate-limit key
+      // resolver has usually resolved this exchange already
+      if (principalResolver.resolve(exchange) == null) {
+        return unauthorized(exchange);
+      }
+      return chain.filter(exchange);
     };
   }
+
+  private Mono<Void> unauthorized(ServerWebExchange exchange) {
+    exchange.getResponse().setStatusCode(HttpStatus.UNAUTHORIZED);
+    return exchange.getResponse().setComplete();
+  }
 }
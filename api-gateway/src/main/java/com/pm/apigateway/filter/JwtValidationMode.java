@@ -0,0 +1,8 @@
+package com.pm.apigateway.filter;
+
+public enum JwtValidationMode {
+  /** Verify signature and expiry in the gateway using {@code jwt.secret}. */
+  LOCAL,
+  /** Call auth-service {@code /validate} for every request. */
+  REMOTE
+}
@@ -0,0 +1,77 @@
+package com.pm.apigateway.filter;
+
+import com.pm.apigateway.cache.VerifiedTokenCache;
+import com.pm.apigateway.cache.VerifiedTokenCache.Principal;
+import com.pm.apigateway.util.JwtUtil;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+
+/**
+ * Resolves the request's bearer token to a principal at most once per exchange
+ * and keeps the outcome as an exchange attribute, so the rate-limit key resolver
+ * and {@link JwtValidationGatewayFilterFactory} share one lookup. Tokens in
+ * {@link VerifiedTokenCache} are answered from it without a signature check and
+ * revoked ones resolve to nothing; only unknown tokens are verified, and are
+ * cached with their subject and role. Without a {@code jwt.secret} (REMOTE mode)
+ * unknown tokens cannot be verified here and resolve to nothing.
+ */
+@Component
+public class RequestPrincipalResolver {
+  private static final Logger log = LoggerFactory.getLogger(RequestPrincipalResolver.class);
+  private static final String PRINCIPAL_ATTRIBUTE = RequestPrincipalResolver.class.getName() + ".principal";
+  private static final Object NO_PRINCIPAL = new Object();
+
+  private final JwtUtil jwtUtil;
+  private final VerifiedTokenCache tokenCache;
+
+  public RequestPrincipalResolver(JwtUtil jwtUtil, VerifiedTokenCache tokenCache) {
+    this.jwtUtil = jwtUtil;
+    this.tokenCache = tokenCache;
+  }
+
+  /** @return the token's principal, or null if the token is missing, invalid, revoked or cannot be checked here */
+  public Principal resolve(ServerWebExchange exchange) {
+    Object cached = exchange.getAttribute(PRINCIPAL_ATTRIBUTE);
+    if (cached == null) {
+      cached = lookup(exchange);
+      exchange.getAttributes().put(PRINCIPAL_ATTRIBUTE, cached);
+    }
+    return cached instanceof Principal principal ? principal : null;
+  }
+
+  private Object lookup(ServerWebExchange exchange) {
+    String header = exchange.getRequest().getHeaders().getFirst(HttpHeaders.AUTHORIZATION);
+    if (header == null || !header.startsWith("Bearer ")) {
+      return NO_PRINCIPAL;
+    }
+    String token = header.substring(7);
+    VerifiedTokenCache.Lookup known = tokenCache.lookup(token);
+    switch (known.state()) {
+      case VALID:
+        return known.principal();
+      case REVOKED:
+        return NO_PRINCIPAL;
+      default:
+        break;
+    }
+    if (!jwtUtil.isConfigured()) {
+      return NO_PRINCIPAL;
+    }
+    try {
+      Claims claims = jwtUtil.validateToken(token);
+      Principal principal = new Principal(claims.getSubject(), claims.get("role", String.class));
+      if (claims.getExpiration() != null) {
+        tokenCache.putVerified(token, principal, claims.getExpiration().toInstant());
+      }
+      return principal;
+    } catch (JwtException e) {
+      log.debug("Rejected JWT: {}", e.getMessage());
+      return NO_PRINCIPAL;
+    }
+  }
+}
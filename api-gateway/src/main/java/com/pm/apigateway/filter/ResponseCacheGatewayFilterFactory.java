@@ -0,0 +1,207 @@
+package com.pm.apigateway.filter;
+
+import com.pm.apigateway.cache.ResponseCache;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.factory.AbstractGatewayFilterFactory;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.util.HashSet;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Collapses identical concurrent GETs into one upstream call and serves
+ * responses from {@link ResponseCache} while they are fresh. The first request
+ * for a key fetches; requests arriving before it finishes wait and get a copy
+ * of its response. If-None-Match is answered here from the stored ETag, and
+ * upstream only sees the gateway's own revalidation of a stale entry. Any
+ * successful POST, PUT, PATCH or DELETE through the route clears the cache. Put it after
+ * JwtValidation so every caller is still authenticated.
+ */
+@Component
+public class ResponseCacheGatewayFilterFactory extends
+        AbstractGatewayFilterFactory<Object> {
+  public static final String CACHE_STATUS_HEADER = "X-Gateway-Cache";
+  private static final Set<HttpMethod> WRITE_METHODS =
+          Set.of(HttpMethod.POST, HttpMethod.PUT, HttpMethod.PATCH, HttpMethod.DELETE);
+
+  private final ResponseCache responseCache;
+  private final Counter hitCounter;
+  private final Counter coalescedCounter;
+
+  public ResponseCacheGatewayFilterFactory(ResponseCache responseCache, MeterRegistry meterRegistry) {
+    this.responseCache = responseCache;
+    this.hitCounter = meterRegistry.counter("custom.gateway.response.served", "source", "cache");
+    this.coalescedCounter = meterRegistry.counter("custom.gateway.response.served", "source", "coalesced");
+  }
+
+  @Override
+  public GatewayFilter apply(Object config) {
+    return (exchange, chain) -> {
+      ServerHttpRequest request = exchange.getRequest();
+      if (request.getMethod() != HttpMethod.GET) {
+        if (!WRITE_METHODS.contains(request.getMethod())) {
+          // HEAD, OPTIONS and CORS preflights change nothing and must not flush the cache
+          return chain.filter(exchange);
+        }
+        return chain.filter(exchange).doOnSuccess(done -> {
+          HttpStatusCode status = exchange.getResponse().getStatusCode();
+          if (status != null && status.is2xxSuccessful()) {
+            responseCache.invalidateAll();
+          }
+        });
+      }
+
+      String key = ResponseCache.key(request);
+      String clientEtags = request.getHeaders().getFirst(HttpHeaders.IF_NONE_MATCH);
+      ResponseCache.Entry cached = responseCache.get(key);
+      if (cached != null && cached.isFresh(System.nanoTime()) && !noCache(request)) {
+        hitCounter.increment();
+        return write(exchange.getResponse(), cached, clientEtags, "HIT");
+      }
+
+      Sinks.One<ResponseCache.Entry> flight = Sinks.one();
+      Sinks.One<ResponseCache.Entry> leader = responseCache.joinFlight(key, flight);
+      if (leader != null) {
+        // an empty result means the leader's fetch failed, so fetch alone
+        return leader.asMono()
+                .map(Optional::of)
+                .defaultIfEmpty(Optional.empty())
+                .flatMap(entry -> {
+                  if (entry.isEmpty()) {
+                    return chain.filter(exchange);
+                  }
+                  coalescedCounter.increment();
+                  return write(exchange.getResponse(), entry.get(), clientEtags, "COALESCED");
+                });
+      }
+      return fetch(exchange, chain, key, cached, clientEtags, flight);
+    };
+  }
+
+  private Mono<Void> fetch(ServerWebExchange exchange, GatewayFilterChain chain, String key,
+                           ResponseCache.Entry stale, String clientEtags, Sinks.One<ResponseCache.Entry> flight) {
+    String revalidateEtag = stale != null ? stale.etag() : null;
+    ServerHttpRequest upstreamRequest = exchange.getRequest().mutate()
+            .headers(headers -> {
+              // the client's validators are checked here, a 304 from upstream could not be shared
+              headers.remove(HttpHeaders.IF_NONE_MATCH);
+              headers.remove(HttpHeaders.IF_MODIFIED_SINCE);
+              if (revalidateEtag != null) {
+                headers.setIfNoneMatch(revalidateEtag);
+              }
+            })
+            .build();
+
+    // headers earlier filters set for this exchange only, such as the rate limit ones
+    Set<String> exchangeHeaders = new HashSet<>(exchange.getResponse().getHeaders().keySet());
+    AtomicBoolean finished = new AtomicBoolean();
+
+    exchange.getAttributes().put(ResponseCaptureFilter.BODY_HANDLER_ATTR, new ResponseCaptureFilter.BodyHandler() {
+      @Override
+      public Mono<Void> write(ServerHttpResponse delegate, Flux<DataBuffer> body) {
+        return DataBufferUtils.join(body)
+                .map(buffer -> {
+                  byte[] bytes = new byte[buffer.readableByteCount()];
+                  buffer.read(bytes);
+                  DataBufferUtils.release(buffer);
+                  return bytes;
+                })
+                .defaultIfEmpty(new byte[0])
+                .flatMap(bytes -> {
+                  HttpStatusCode status = delegate.getStatusCode() != null ? delegate.getStatusCode() : HttpStatus.OK;
+                  boolean revalidated = stale != null && status.value() == HttpStatus.NOT_MODIFIED.value();
+                  ResponseCache.Entry entry = responseCache.store(key, status,
+                          upstreamHeaders(delegate.getHeaders(), exchangeHeaders), bytes, stale, System.nanoTime());
+                  if (finished.compareAndSet(false, true)) {
+                    responseCache.finishFlight(key, flight, entry);
+                  }
+                  return ResponseCacheGatewayFilterFactory.write(delegate, entry, clientEtags,
+                          revalidated ? "REVALIDATED" : "MISS");
+                });
+      }
+
+      @Override
+      public void complete() {
+        // failed, cancelled or streamed, waiting requests go upstream themselves
+        if (finished.compareAndSet(false, true)) {
+          responseCache.finishFlight(key, flight, null);
+        }
+      }
+    });
+
+    return chain.filter(exchange.mutate().request(upstreamRequest).build());
+  }
+
+  private static Mono<Void> write(ServerHttpResponse response, ResponseCache.Entry entry,
+                                  String clientEtags, String cacheStatus) {
+    HttpHeaders headers = response.getHeaders();
+    headers.putAll(entry.headers());
+    headers.remove(HttpHeaders.TRANSFER_ENCODING);
+    headers.set(CACHE_STATUS_HEADER, cacheStatus);
+    if ("HIT".equals(cacheStatus)) {
+      headers.set(HttpHeaders.AGE, Long.toString(
+              TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - entry.storedAtNanos())));
+    }
+
+    if (entry.status().value() == HttpStatus.OK.value() && etagMatches(clientEtags, entry.etag())) {
+      response.setStatusCode(HttpStatus.NOT_MODIFIED);
+      headers.remove(HttpHeaders.CONTENT_LENGTH);
+      headers.remove(HttpHeaders.CONTENT_TYPE);
+      return response.setComplete();
+    }
+    response.setStatusCode(entry.status());
+    headers.setContentLength(entry.body().length);
+    return response.writeWith(Mono.just(response.bufferFactory().wrap(entry.body())));
+  }
+
+  private static HttpHeaders upstreamHeaders(HttpHeaders headers, Set<String> exchangeHeaders) {
+    HttpHeaders copy = new HttpHeaders();
+    headers.forEach((name, values) -> {
+      if (!exchangeHeaders.contains(name)
+              && !name.equalsIgnoreCase(HttpHeaders.TRANSFER_ENCODING)
+              && !name.equalsIgnoreCase(HttpHeaders.CONNECTION)
+              && !name.equalsIgnoreCase(CACHE_STATUS_HEADER)) {
+        copy.put(name, values);
+      }
+    });
+    return copy;
+  }
+
+  private static boolean noCache(ServerHttpRequest request) {
+    String cacheControl = request.getHeaders().getCacheControl();
+    return cacheControl != null && (cacheControl.contains("no-cache") || cacheControl.contains("no-store"));
+  }
+
+  /** Weak comparison as If-None-Match requires, {@code W/"x"} matches {@code "x"}. */
+  private static boolean etagMatches(String ifNoneMatch, String etag) {
+    if (ifNoneMatch == null || etag == null) {
+      return false;
+    }
+    String opaque = etag.startsWith("W/") ? etag.substring(2) : etag;
+    for (String candidate : ifNoneMatch.split(",")) {
+      String c = candidate.trim();
+      if (c.equals("*") || (c.startsWith("W/") ? c.substring(2) : c).equals(opaque)) {
+        return true;
+      }
+    }
+    return false;
+  }
+}
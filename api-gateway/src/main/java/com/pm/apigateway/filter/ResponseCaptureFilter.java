@@ -0,0 +1,62 @@
+package com.pm.apigateway.filter;
+
+import org.reactivestreams.Publisher;
+import org.springframework.cloud.gateway.filter.GatewayFilterChain;
+import org.springframework.cloud.gateway.filter.GlobalFilter;
+import org.springframework.cloud.gateway.filter.NettyWriteResponseFilter;
+import org.springframework.core.Ordered;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.http.server.reactive.ServerHttpResponseDecorator;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Lets a route filter take over writing the upstream body. NettyWriteResponseFilter
+ * writes to the response it was handed, so a decorator has to be in place before
+ * it runs, ahead of every route filter. Route filters that run later, such as
+ * {@link ResponseCacheGatewayFilterFactory} after JwtValidation, register a
+ * {@link BodyHandler} in the exchange attributes instead. Streaming responses
+ * go through writeAndFlushWith and are never handed over.
+ */
+@Component
+public class ResponseCaptureFilter implements GlobalFilter, Ordered {
+  public static final String BODY_HANDLER_ATTR = ResponseCaptureFilter.class.getName() + ".bodyHandler";
+
+  public interface BodyHandler {
+    /** Writes {@code body}, or whatever should go out instead, to the undecorated response. */
+    Mono<Void> write(ServerHttpResponse response, Flux<DataBuffer> body);
+
+    /** Called once the exchange is over, also when {@link #write} never was. */
+    void complete();
+  }
+
+  @Override
+  public Mono<Void> filter(ServerWebExchange exchange, GatewayFilterChain chain) {
+    ServerHttpResponseDecorator response = new ServerHttpResponseDecorator(exchange.getResponse()) {
+      @Override
+      public Mono<Void> writeWith(Publisher<? extends DataBuffer> body) {
+        BodyHandler handler = exchange.getAttribute(BODY_HANDLER_ATTR);
+        if (handler == null) {
+          return super.writeWith(body);
+        }
+        return handler.write(getDelegate(), Flux.from(body));
+      }
+    };
+    // the body is written after the rest of the chain completes, so only this filter sees the end
+    return chain.filter(exchange.mutate().response(response).build())
+            .doFinally(signal -> {
+              BodyHandler handler = exchange.getAttribute(BODY_HANDLER_ATTR);
+              if (handler != null) {
+                handler.complete();
+              }
+            });
+  }
+
+  @Override
+  public int getOrder() {
+    return NettyWriteResponseFilter.WRITE_RESPONSE_FILTER_ORDER - 1;
+  }
+}
@@ -0,0 +1,273 @@
+package com.pm.apigateway.ratelimit;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Token buckets for every rate-limit key, kept in open-addressing tables of
+ * primitive longs instead of one map entry, String key and bucket object per
+ * key. A key is its 64-bit hash and a slot is 48 bytes, against roughly 250
+ * for a ConcurrentHashMap entry, so high key cardinality (one key per user)
+ * stays cheap. The table is split into segments, each locked only for a probe
+ * and a few arithmetic operations.
+ *
+ * <p>Buckets are GCRA: the state is a theoretical arrival time (tat). Taking n
+ * tokens pushes tat forward by n emission intervals, and a request fits while
+ * tat stays within the burst window from now. A full bucket is any tat at or
+ * before now, which also makes it the idle marker: buckets that have been full
+ * for the idle timeout and have nothing left to sync are dropped on
+ * {@link #drain}. A full bucket with nothing to sync is also left out of the
+ * batch, so Redis only hears about keys that are actually in use.
+ */
+final class BucketTable {
+  private static final long EMPTY = 0L;
+  private static final long NANOS_PER_SECOND = TimeUnit.SECONDS.toNanos(1);
+  private static final int SEGMENT_BITS = 6;
+  private static final int MIN_CAPACITY = 16;
+
+  // slot layout, STRIDE longs per slot
+  private static final int KEY = 0;
+  private static final int TAT = 1;
+  private static final int QUOTA = 2; // replenish rate << 32 | burst capacity
+  private static final int UNSYNCED = 3;
+  private static final int OWN_IN_WINDOW = 4;
+  private static final int REMOTE_SEEN = 5;
+  private static final int STRIDE = 6;
+
+  /** Keys and local grants collected for one Redis sync. */
+  record SyncBatch(long[] keys, long[] deltas, int size) {}
+
+  private final Segment[] segments = new Segment[1 << SEGMENT_BITS];
+  private long windowId = -1;
+
+  BucketTable() {
+    for (int i = 0; i < segments.length; i++) {
+      segments[i] = new Segment();
+    }
+  }
+
+  /**
+   * The segment a key lives in. {@link #drain} returns keys grouped by shard, so
+   * a sync can put one shard in the same Redis Cluster slot.
+   */
+  static int shardOf(long key) {
+    return (int) (key >>> (64 - SEGMENT_BITS));
+  }
+
+  /** FNV-1a with a murmur finalizer, stable across JVMs so every instance maps a key to the same Redis counter. */
+  static long hash(String key) {
+    long h = 0xcbf29ce484222325L;
+    for (int i = 0; i < key.length(); i++) {
+      h ^= key.charAt(i);
+      h *= 0x100000001b3L;
+    }
+    h ^= h >>> 33;
+    h *= 0xff51afd7ed558ccdL;
+    h ^= h >>> 33;
+    h *= 0xc4ceb9fe1a85ec53L;
+    h ^= h >>> 33;
+    return h == EMPTY ? 1 : h;
+  }
+
+  /** @return tokens left after taking {@code tokens}, or -1 if they do not fit */
+  long tryAcquire(long key, int replenishRate, int burstCapacity, int tokens, long nowNanos) {
+    return segment(key).tryAcquire(key, replenishRate, burstCapacity, tokens, nowNanos);
+  }
+
+  /**
+   * Takes what every bucket granted since the last drain, plus the buckets that
+   * are not full yet so they keep learning what other instances grant, and drops
+   * idle ones. Keys come out grouped by {@link #shardOf}. Starting a new window
+   * resets each bucket's window accounting. Only called from the sync loop, one
+   * drain at a time.
+   */
+  SyncBatch drain(long windowId, long nowNanos, long idleNanos) {
+    boolean newWindow = windowId != this.windowId;
+    this.windowId = windowId;
+    long[] keys = new long[64];
+    long[] deltas = new long[64];
+    int size = 0;
+    for (Segment segment : segments) {
+      synchronized (segment) {
+        if (keys.length < size + segment.size) {
+          int capacity = Math.max(keys.length * 2, size + segment.size);
+          keys = Arrays.copyOf(keys, capacity);
+          deltas = Arrays.copyOf(deltas, capacity);
+        }
+        size = segment.drain(newWindow, nowNanos, idleNanos, keys, deltas, size);
+      }
+    }
+    return new SyncBatch(keys, deltas, size);
+  }
+
+  /** Applies the global total Redis returned after adding {@code delta} for {@code key}. */
+  void settle(long key, long delta, long total, long nowNanos) {
+    segment(key).settle(key, delta, total, nowNanos);
+  }
+
+  /** Gives back grants whose sync failed, they go out with the next one. */
+  void restore(long key, long delta) {
+    segment(key).restore(key, delta);
+  }
+
+  int size() {
+    int size = 0;
+    for (Segment segment : segments) {
+      synchronized (segment) {
+        size += segment.size;
+      }
+    }
+    return size;
+  }
+
+  /** Slots allocated across all segments, used or not. */
+  int capacity() {
+    int capacity = 0;
+    for (Segment segment : segments) {
+      synchronized (segment) {
+        capacity += segment.capacity;
+      }
+    }
+    return capacity;
+  }
+
+  private Segment segment(long key) {
+    return segments[shardOf(key)];
+  }
+
+  private static final class Segment {
+    private long[] slots = new long[MIN_CAPACITY * STRIDE];
+    private int capacity = MIN_CAPACITY;
+    private int size;
+
+    synchronized long tryAcquire(long key, int replenishRate, int burstCapacity, int tokens, long nowNanos) {
+      int base = find(key);
+      if (base < 0) {
+        base = insert(key, nowNanos);
+      }
+      // the quota may change with config, the latest one applies
+      slots[base + QUOTA] = (long) replenishRate << 32 | burstCapacity;
+      long interval = NANOS_PER_SECOND / replenishRate;
+      long burstWindow = interval * burstCapacity;
+      long next = Math.max(slots[base + TAT], nowNanos) + tokens * interval;
+      if (next - nowNanos > burstWindow) {
+        return -1;
+      }
+      slots[base + TAT] = next;
+      slots[base + UNSYNCED] += tokens;
+      return (burstWindow - (next - nowNanos)) / interval;
+    }
+
+    synchronized void settle(long key, long delta, long total, long nowNanos) {
+      int base = find(key);
+      if (base < 0) {
+        return;
+      }
+      slots[base + OWN_IN_WINDOW] += delta;
+      long remote = total - slots[base + OWN_IN_WINDOW] - slots[base + REMOTE_SEEN];
+      if (remote <= 0) {
+        return;
+      }
+      slots[base + REMOTE_SEEN] += remote;
+      // take what other instances granted, at most down to an empty bucket
+      long quota = slots[base + QUOTA];
+      long interval = NANOS_PER_SECOND / (int) (quota >>> 32);
+      long burstWindow = interval * (int) quota;
+      long next = Math.max(slots[base + TAT], nowNanos) + Math.min(remote, (int) quota) * interval;
+      slots[base + TAT] = Math.min(next, nowNanos + burstWindow);
+    }
+
+    synchronized void restore(long key, long delta) {
+      int base = find(key);
+      if (base >= 0) {
+        slots[base + UNSYNCED] += delta;
+      }
+    }
+
+    // caller holds the lock
+    int drain(boolean newWindow, long nowNanos, long idleNanos, long[] keys, long[] deltas, int offset) {
+      int evicted = 0;
+      for (int base = 0; base < slots.length; base += STRIDE) {
+        if (slots[base + KEY] == EMPTY) {
+          continue;
+        }
+        boolean unsynced = slots[base + UNSYNCED] != 0;
+        if (!unsynced && slots[base + TAT] + idleNanos < nowNanos) {
+          slots[base + KEY] = EMPTY;
+          evicted++;
+          continue;
+        }
+        if (newWindow) {
+          slots[base + OWN_IN_WINDOW] = 0;
+          slots[base + REMOTE_SEEN] = 0;
+        }
+        if (!unsynced && slots[base + TAT] <= nowNanos) {
+          // full and quiet here, another instance's grants only matter once this one takes tokens
+          continue;
+        }
+        keys[offset] = slots[base + KEY];
+        deltas[offset] = slots[base + UNSYNCED];
+        slots[base + UNSYNCED] = 0;
+        offset++;
+      }
+      if (evicted > 0) {
+        // emptied slots would break probe chains, so rebuild, shrinking if the table is mostly empty
+        size -= evicted;
+        int target = capacity;
+        while (target > MIN_CAPACITY && size * 8 < target) {
+          target >>= 1;
+        }
+        rehash(target);
+      }
+      return offset;
+    }
+
+    private int find(long key) {
+      int mask = capacity - 1;
+      for (int i = (int) key & mask; ; i = (i + 1) & mask) {
+        long k = slots[i * STRIDE + KEY];
+        if (k == key) {
+          return i * STRIDE;
+        }
+        if (k == EMPTY) {
+          return -1;
+        }
+      }
+    }
+
+    private int insert(long key, long nowNanos) {
+      if ((size + 1) * 4 > capacity * 3) {
+        rehash(capacity * 2);
+      }
+      int base = freeSlot(slots, capacity, key);
+      slots[base + KEY] = key;
+      slots[base + TAT] = nowNanos;
+      slots[base + UNSYNCED] = 0;
+      slots[base + OWN_IN_WINDOW] = 0;
+      slots[base + REMOTE_SEEN] = 0;
+      size++;
+      return base;
+    }
+
+    private void rehash(int newCapacity) {
+      long[] old = slots;
+      long[] table = new long[newCapacity * STRIDE];
+      for (int base = 0; base < old.length; base += STRIDE) {
+        if (old[base + KEY] != EMPTY) {
+          System.arraycopy(old, base, table, freeSlot(table, newCapacity, old[base + KEY]), STRIDE);
+        }
+      }
+      slots = table;
+      capacity = newCapacity;
+    }
+
+    private static int freeSlot(long[] table, int capacity, long key) {
+      int mask = capacity - 1;
+      int i = (int) key & mask;
+      while (table[i * STRIDE + KEY] != EMPTY) {
+        i = (i + 1) & mask;
+      }
+      return i * STRIDE;
+    }
+  }
+}
@@ -0,0 +1,241 @@
+package com.pm.apigateway.ratelimit;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.validation.constraints.Min;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cloud.gateway.filter.ratelimit.AbstractRateLimiter;
+import org.springframework.cloud.gateway.support.ConfigurationService;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Component;
+import org.springframework.validation.annotation.Validated;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Rate limiter that decides every request from in-memory token buckets in a
+ * {@link BucketTable}, without network I/O. The quota comes from the key's
+ * tier (see {@link RateLimitKeys}) and {@link RateLimitQuotaProperties},
+ * falling back to the route's filter args. Every
+ * {@code rate-limit.sync-interval} the tokens each bucket granted here are
+ * added to a per-window counter in Redis, one script call per batch of keys.
+ * Whatever other instances granted for the same key is then taken out of the
+ * local bucket. Buckets that are full and granted nothing since the last sync
+ * are skipped, so a key costs Redis calls only while it is in use here. Each
+ * script call covers one {@link BucketTable#shardOf shard}, whose counters
+ * share a hash tag and therefore a Redis Cluster slot. Limits are global per key, but they
+ * are enforced one sync interval late, so a key can briefly get up to one
+ * extra burst per instance. If Redis is unreachable each instance keeps
+ * limiting on its own.
+ */
+@Primary
+@Component
+public class HybridRateLimiter extends AbstractRateLimiter<HybridRateLimiter.Config> {
+  private static final Logger log = LoggerFactory.getLogger(HybridRateLimiter.class);
+
+  public static final String CONFIGURATION_PROPERTY_NAME = "hybrid-rate-limiter";
+  public static final String REMAINING_HEADER = "X-RateLimit-Remaining";
+  public static final String REPLENISH_RATE_HEADER = "X-RateLimit-Replenish-Rate";
+  public static final String BURST_CAPACITY_HEADER = "X-RateLimit-Burst-Capacity";
+  public static final String REQUESTED_TOKENS_HEADER = "X-RateLimit-Requested-Tokens";
+
+  private final BucketTable buckets = new BucketTable();
+  private final RateLimitQuotaProperties quotaProperties;
+  private final ReactiveStringRedisTemplate redisTemplate;
+  private final RedisScript<List<Long>> syncScript;
+  private final Duration syncInterval;
+  private final Duration syncTimeout;
+  private final long windowMillis;
+  private final long idleNanos;
+  private final int syncBatchSize;
+
+  private final Counter allowedCounter;
+  private final Counter limitedCounter;
+  private final Timer syncTimer;
+  private final Counter syncFailureCounter;
+  private Disposable syncLoop;
+
+  @SuppressWarnings({"unchecked", "rawtypes"})
+  public HybridRateLimiter(
+          ReactiveStringRedisTemplate redisTemplate,
+          ConfigurationService configurationService,
+          RateLimitQuotaProperties quotaProperties,
+          @Value("${rate-limit.sync-interval:200ms}") Duration syncInterval,
+          @Value("${rate-limit.sync-timeout:1s}") Duration syncTimeout,
+          @Value("${rate-limit.window:1s}") Duration window,
+          @Value("${rate-limit.idle-timeout:5m}") Duration idleTimeout,
+          @Value("${rate-limit.sync-batch-size:500}") int syncBatchSize,
+          MeterRegistry meterRegistry
+  ) {
+    super(Config.class, CONFIGURATION_PROPERTY_NAME, configurationService);
+    quotaProperties.getQuotas().forEach((route, roles) -> roles.forEach((role, quota) -> {
+      if (quota.getReplenishRate() < 1 || quota.getBurstCapacity() < 1) {
+        throw new IllegalStateException("rate-limit.quotas." + route + "." + role + " needs a replenish rate and burst capacity of at least 1");
+      }
+    }));
+    this.quotaProperties = quotaProperties;
+    this.redisTemplate = redisTemplate;
+    this.syncScript = (RedisScript) RedisScript.of(new ClassPathResource("scripts/rate_limit_sync.lua"), List.class);
+    this.syncInterval = syncInterval;
+    this.syncTimeout = syncTimeout;
+    this.windowMillis = window.toMillis();
+    this.idleNanos = idleTimeout.toNanos();
+    this.syncBatchSize = syncBatchSize;
+
+    this.allowedCounter = meterRegistry.counter("custom.gateway.ratelimit.requests", "outcome", "allowed");
+    this.limitedCounter = meterRegistry.counter("custom.gateway.ratelimit.requests", "outcome", "limited");
+    this.syncTimer = meterRegistry.timer("custom.gateway.ratelimit.sync");
+    this.syncFailureCounter = meterRegistry.counter("custom.gateway.ratelimit.sync.failures");
+    Gauge.builder("custom.gateway.ratelimit.buckets", buckets, BucketTable::size).register(meterRegistry);
+  }
+
+  @PostConstruct
+  public void startSync() {
+    syncLoop = Flux.interval(syncInterval)
+            .onBackpressureDrop()
+            .concatMap(tick -> sync(), 1)
+            .subscribe();
+  }
+
+  @PreDestroy
+  public void stopSync() {
+    if (syncLoop != null) {
+      syncLoop.dispose();
+    }
+  }
+
+  @Override
+  public Mono<Response> isAllowed(String routeId, String id) {
+    Config config = getConfig().get(routeId);
+    if (config == null) {
+      throw new IllegalArgumentException("No Configuration found for route " + routeId + " or defaultFilters");
+    }
+    RateLimitQuotaProperties.Quota quota = quotaProperties.find(routeId, RateLimitKeys.tierOf(id));
+    int replenishRate = quota != null ? quota.getReplenishRate() : config.getReplenishRate();
+    int burstCapacity = quota != null ? quota.getBurstCapacity() : config.getBurstCapacity();
+
+    long remaining = buckets.tryAcquire(BucketTable.hash(routeId + ":" + id),
+            replenishRate, burstCapacity, config.getRequestedTokens(), System.nanoTime());
+    boolean allowed = remaining >= 0;
+    (allowed ? allowedCounter : limitedCounter).increment();
+    return Mono.just(new Response(allowed,
+            headers(replenishRate, burstCapacity, config.getRequestedTokens(), Math.max(remaining, 0))));
+  }
+
+  private Map<String, String> headers(int replenishRate, int burstCapacity, int requestedTokens, long remaining) {
+    Map<String, String> headers = new HashMap<>();
+    headers.put(REMAINING_HEADER, Long.toString(remaining));
+    headers.put(REPLENISH_RATE_HEADER, Integer.toString(replenishRate));
+    headers.put(BURST_CAPACITY_HEADER, Integer.toString(burstCapacity));
+    headers.put(REQUESTED_TOKENS_HEADER, Integer.toString(requestedTokens));
+    return headers;
+  }
+
+  private Mono<Void> sync() {
+    long windowId = System.currentTimeMillis() / windowMillis;
+    BucketTable.SyncBatch batch = buckets.drain(windowId, System.nanoTime(), idleNanos);
+    if (batch.size() == 0) {
+      return Mono.empty();
+    }
+
+    // drain returns keys grouped by shard, a script call must not mix shards
+    List<Mono<Void>> calls = new ArrayList<>();
+    int from = 0;
+    for (int i = 1; i <= batch.size(); i++) {
+      if (i == batch.size() || i - from == syncBatchSize
+              || BucketTable.shardOf(batch.keys()[i]) != BucketTable.shardOf(batch.keys()[from])) {
+        calls.add(syncRange(batch, from, i, windowId));
+        from = i;
+      }
+    }
+    Timer.Sample sample = Timer.start();
+    return Flux.concat(calls)
+            .then()
+            .doFinally(signal -> sample.stop(syncTimer));
+  }
+
+  private Mono<Void> syncRange(BucketTable.SyncBatch batch, int from, int to, long windowId) {
+    List<String> redisKeys = new ArrayList<>(to - from);
+    List<String> args = new ArrayList<>(to - from + 1);
+    args.add(Long.toString(windowMillis * 2));
+    for (int i = from; i < to; i++) {
+      redisKeys.add("hybrid_rate_limiter.{" + BucketTable.shardOf(batch.keys()[i]) + "}."
+              + Long.toHexString(batch.keys()[i]) + "." + windowId);
+      args.add(Long.toString(batch.deltas()[i]));
+    }
+
+    return redisTemplate.execute(syncScript, redisKeys, args)
+            .next()
+            // while Redis is down Lettuce queues commands instead of failing them
+            .timeout(syncTimeout)
+            .doOnNext(totals -> {
+              long now = System.nanoTime();
+              for (int i = from; i < to; i++) {
+                buckets.settle(batch.keys()[i], batch.deltas()[i], totals.get(i - from), now);
+              }
+            })
+            .then()
+            .onErrorResume(e -> {
+              // keep the grants for the next attempt, limits stay local until then;
+              // a timed out call may still land, which only over-counts
+              for (int i = from; i < to; i++) {
+                buckets.restore(batch.keys()[i], batch.deltas()[i]);
+              }
+              syncFailureCounter.increment();
+              log.debug("Rate limit sync failed, limiting locally: {}", e.getMessage());
+              return Mono.empty();
+            });
+  }
+
+  @Validated
+  public static class Config {
+    @Min(1)
+    private int replenishRate;
+
+    @Min(1)
+    private int burstCapacity = 1;
+
+    @Min(1)
+    private int requestedTokens = 1;
+
+    public int getReplenishRate() {
+      return replenishRate;
+    }
+
+    public void setReplenishRate(int replenishRate) {
+      this.replenishRate = replenishRate;
+    }
+
+    public int getBurstCapacity() {
+      return burstCapacity;
+    }
+
+    public void setBurstCapacity(int burstCapacity) {
+      this.burstCapacity = burstCapacity;
+    }
+
+    public int getRequestedTokens() {
+      return requestedTokens;
+    }
+
+    public void setRequestedTokens(int requestedTokens) {
+      this.requestedTokens = requestedTokens;
+    }
+  }
+}
@@ -0,0 +1,22 @@
+package com.pm.apigateway.ratelimit;
+
+/**
+ * Rate-limit keys are {@code <tier>|<identity>}: the caller's role and JWT
+ * subject, or {@link #ANONYMOUS} and the client IP. The limiter reads the tier
+ * back to pick the quota.
+ */
+public final class RateLimitKeys {
+  public static final String ANONYMOUS = "ANONYMOUS";
+  private static final char SEPARATOR = '|';
+
+  private RateLimitKeys() {}
+
+  public static String of(String tier, String identity) {
+    return tier + SEPARATOR + identity;
+  }
+
+  static String tierOf(String key) {
+    int separator = key.indexOf(SEPARATOR);
+    return separator < 0 ? ANONYMOUS : key.substring(0, separator);
+  }
+}
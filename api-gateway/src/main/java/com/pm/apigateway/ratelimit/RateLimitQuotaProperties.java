@@ -0,0 +1,52 @@
+package com.pm.apigateway.ratelimit;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Per-role quotas, {@code rate-limit.quotas.<route id>.<role>}. The route id
+ * {@code default} applies to every route; a role listed for neither the route
+ * nor {@code default} gets the route's RequestRateLimiter args.
+ */
+@ConfigurationProperties(prefix = "rate-limit")
+public class RateLimitQuotaProperties {
+  public static final String DEFAULT_ROUTE = "default";
+
+  private Map<String, Map<String, Quota>> quotas = new HashMap<>();
+
+  public Map<String, Map<String, Quota>> getQuotas() {
+    return quotas;
+  }
+
+  public void setQuotas(Map<String, Map<String, Quota>> quotas) {
+    this.quotas = quotas;
+  }
+
+  Quota find(String routeId, String tier) {
+    Quota quota = quotas.getOrDefault(routeId, Map.of()).get(tier);
+    return quota != null ? quota : quotas.getOrDefault(DEFAULT_ROUTE, Map.of()).get(tier);
+  }
+
+  public static class Quota {
+    private int replenishRate;
+    private int burstCapacity;
+
+    public int getReplenishRate() {
+      return replenishRate;
+    }
+
+    public void setReplenishRate(int replenishRate) {
+      this.replenishRate = replenishRate;
+    }
+
+    public int getBurstCapacity() {
+      return burstCapacity;
+    }
+
+    public void setBurstCapacity(int burstCapacity) {
+      this.burstCapacity = burstCapacity;
+    }
+  }
+}
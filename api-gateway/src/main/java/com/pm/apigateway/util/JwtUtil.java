@@ -0,0 +1,76 @@
+package com.pm.apigateway.util;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.JwtParser;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Keys;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Base64;
+
+/**
+ * Verifies tokens issued by auth-service without calling it. The key is derived
+ * from {@code jwt.secret} exactly like auth-service's {@code JwtUtil} does.
+ */
+@Component
+public class JwtUtil {
+  private static final ObjectMapper objectMapper = new ObjectMapper();
+  private final JwtParser jwtParser;
+
+  public JwtUtil(@Value("${jwt.secret:}") String secret) {
+    if (secret == null || secret.isBlank()) {
+      this.jwtParser = null;
+      return;
+    }
+    byte[] encodedKey = Base64.getEncoder().encode(secret.getBytes(StandardCharsets.UTF_8));
+    this.jwtParser = Jwts.parser()
+            .verifyWith(Keys.hmacShaKeyFor(encodedKey))
+            .build();
+  }
+
+  public boolean isConfigured() {
+    return jwtParser != null;
+  }
+
+  /**
+   * Checks the HMAC signature and {@code exp} of the token.
+   *
+   * @throws JwtException if the token is malformed, tampered with or expired
+   */
+  public Claims validateToken(String token) {
+    if (jwtParser == null) {
+      throw new IllegalStateException("jwt.secret is not configured");
+    }
+    try {
+      return jwtParser.parseSignedClaims(token).getPayload();
+    } catch (IllegalArgumentException e) {
+      throw new JwtException("Invalid JWT");
+    }
+  }
+
+  /**
+   * Reads {@code exp} from the payload WITHOUT verifying the signature. Only use
+   * this for tokens that have already been accepted, e.g. by auth-service.
+   *
+   * @return the expiry, or null if the token has none or cannot be decoded
+   */
+  public Instant readExpiration(String token) {
+    String[] parts = token.split("\\.");
+    if (parts.length < 2) {
+      return null;
+    }
+    try {
+      JsonNode exp = objectMapper.readTree(Base64.getUrlDecoder().decode(parts[1])).get("exp");
+      return exp != null && exp.canConvertToLong() ? Instant.ofEpochSecond(exp.asLong()) : null;
+    } catch (IOException | IllegalArgumentException e) {
+      return null;
+    }
+  }
+}
@@ -0,0 +1,22 @@
+-- Adds each node's local grants to the shared per-window counters in one round trip.
+-- KEYS[i] = counter for one bucket and window, ARGV[1] = counter ttl in ms,
+-- ARGV[i + 1] = tokens granted locally since the last sync (may be 0).
+-- All KEYS carry the same hash tag, so they are in one Redis Cluster slot.
+-- Returns the global total of every counter after the increment.
+local ttl = tonumber(ARGV[1])
+local totals = {}
+for i, key in ipairs(KEYS) do
+  local delta = tonumber(ARGV[i + 1])
+  local total
+  if delta == 0 then
+    -- only reading what other instances granted, do not create the counter
+    total = tonumber(redis.call('GET', key) or 0)
+  else
+    total = redis.call('INCRBY', key, delta)
+    if total == delta then
+      redis.call('PEXPIRE', key, ttl)
+    end
+  end
+  totals[i] = total
+end
+return totals
@@ -0,0 +1,155 @@
+package com.pm.apigateway.cache;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import reactor.core.publisher.Sinks;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ResponseCacheTests {
+
+  private static final byte[] BODY = "[{\"name\":\"alice\"}]".getBytes(StandardCharsets.UTF_8);
+
+  private final ResponseCache cache = cache(true);
+
+  @Test
+  void capsFreshnessAtTheConfiguredTtl() {
+    long now = System.nanoTime();
+
+    assertThat(freshFor(cache.store("long", HttpStatus.OK, headers("max-age=600"), BODY, null, now), now))
+            .isEqualTo(seconds(2));
+    assertThat(freshFor(cache.store("none", HttpStatus.OK, new HttpHeaders(), BODY, null, now), now))
+            .isEqualTo(seconds(2));
+    // s-maxage is the one meant for shared caches
+    assertThat(freshFor(cache.store("shared", HttpStatus.OK, headers("max-age=60, s-maxage=1"), BODY, null, now), now))
+            .isEqualTo(seconds(1));
+
+    assertThat(cache.get("long").isFresh(now + seconds(1))).isTrue();
+    assertThat(cache.get("long").isFresh(now + seconds(2))).isFalse();
+  }
+
+  @Test
+  void doesNotStoreWhatMustNotBeShared() {
+    long now = System.nanoTime();
+    HttpHeaders withCookie = headers("max-age=60");
+    withCookie.add(HttpHeaders.SET_COOKIE, "session=1");
+
+    cache.store("no-store", HttpStatus.OK, headers("no-store"), BODY, null, now);
+    cache.store("private", HttpStatus.OK, headers("private, max-age=60"), BODY, null, now);
+    cache.store("cookie", HttpStatus.OK, withCookie, BODY, null, now);
+    cache.store("not-found", HttpStatus.NOT_FOUND, headers("max-age=60"), BODY, null, now);
+    cache.store("no-cache", HttpStatus.OK, headers("no-cache"), BODY, null, now);
+    ResponseCache.Entry unstored = cache.store("max-age-0", HttpStatus.OK, headers("max-age=0"), BODY, null, now);
+
+    assertThat(cache.get("no-store")).isNull();
+    assertThat(cache.get("private")).isNull();
+    assertThat(cache.get("cookie")).isNull();
+    assertThat(cache.get("not-found")).isNull();
+    assertThat(cache.get("no-cache")).isNull();
+    assertThat(cache.get("max-age-0")).isNull();
+    // the caller still gets an entry to answer its own request with
+    assertThat(unstored.body()).isEqualTo(BODY);
+    assertThat(unstored.isFresh(now)).isFalse();
+  }
+
+  @Test
+  void keepsExpiredEntriesWithAnEtagForRevalidation() {
+    long now = System.nanoTime();
+    HttpHeaders headers = headers("no-cache");
+    headers.setETag("\"v1\"");
+
+    cache.store("etag", HttpStatus.OK, headers, BODY, null, now);
+
+    ResponseCache.Entry stale = cache.get("etag");
+    assertThat(stale).isNotNull();
+    assertThat(stale.isFresh(now)).isFalse();
+    assertThat(stale.etag()).isEqualTo("\"v1\"");
+  }
+
+  @Test
+  void notModifiedRefreshesTheStaleEntry() {
+    long stored = System.nanoTime();
+    HttpHeaders original = headers("no-cache");
+    original.setETag("\"v1\"");
+    original.setContentType(MediaType.APPLICATION_JSON);
+    original.setContentLength(BODY.length);
+    ResponseCache.Entry stale = cache.store("etag", HttpStatus.OK, original, BODY, null, stored);
+    long now = stored + seconds(1);
+    HttpHeaders notModified = headers("max-age=1");
+    notModified.setETag("\"v1\"");
+    notModified.setContentLength(0);
+
+    ResponseCache.Entry refreshed = cache.store("etag", HttpStatus.NOT_MODIFIED, notModified, new byte[0], stale, now);
+
+    assertThat(refreshed.status()).isEqualTo(HttpStatus.OK);
+    assertThat(refreshed.body()).isEqualTo(BODY);
+    assertThat(refreshed.headers().getContentType()).isEqualTo(MediaType.APPLICATION_JSON);
+    assertThat(refreshed.headers().getContentLength()).isEqualTo(BODY.length);
+    assertThat(refreshed.headers().getCacheControl()).isEqualTo("max-age=1");
+    assertThat(refreshed.storedAtNanos()).isEqualTo(now);
+    assertThat(refreshed.isFresh(now)).isTrue();
+    assertThat(cache.get("etag")).isSameAs(refreshed);
+  }
+
+  @Test
+  void storesNothingWhenDisabled() {
+    ResponseCache disabled = cache(false);
+    long now = System.nanoTime();
+
+    ResponseCache.Entry entry = disabled.store("key", HttpStatus.OK, headers("max-age=60"), BODY, null, now);
+
+    assertThat(entry.isFresh(now)).isTrue();
+    assertThat(disabled.get("key")).isNull();
+  }
+
+  @Test
+  void flightsHandTheLeadersResultToFollowers() {
+    Sinks.One<ResponseCache.Entry> leader = Sinks.one();
+    Sinks.One<ResponseCache.Entry> follower = Sinks.one();
+    assertThat(cache.joinFlight("key", leader)).isNull();
+    assertThat(cache.joinFlight("key", follower)).isSameAs(leader);
+    ResponseCache.Entry entry = cache.store("key", HttpStatus.OK, headers("max-age=1"), BODY, null, System.nanoTime());
+
+    cache.finishFlight("key", leader, entry);
+
+    assertThat(leader.asMono().block(Duration.ZERO)).isSameAs(entry);
+    // the next request for the key leads a new flight
+    assertThat(cache.joinFlight("key", follower)).isNull();
+  }
+
+  @Test
+  void failedFlightsCompleteEmpty() {
+    Sinks.One<ResponseCache.Entry> leader = Sinks.one();
+    cache.joinFlight("key", leader);
+
+    cache.finishFlight("key", leader, null);
+
+    assertThat(leader.asMono().hasElement().block(Duration.ZERO)).isFalse();
+    assertThat(cache.joinFlight("key", Sinks.one())).isNull();
+  }
+
+  private static ResponseCache cache(boolean enabled) {
+    return new ResponseCache(enabled, Duration.ofSeconds(2), Duration.ofSeconds(30), 1 << 20, new SimpleMeterRegistry());
+  }
+
+  private static HttpHeaders headers(String cacheControl) {
+    HttpHeaders headers = new HttpHeaders();
+    headers.setCacheControl(cacheControl);
+    return headers;
+  }
+
+  private static long freshFor(ResponseCache.Entry entry, long now) {
+    return entry.freshUntilNanos() - now;
+  }
+
+  private static long seconds(long seconds) {
+    return TimeUnit.SECONDS.toNanos(seconds);
+  }
+}
@@ -0,0 +1,293 @@
+package com.pm.apigateway.filter;
+
+import com.pm.apigateway.cache.ResponseCache;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.cloud.gateway.filter.GatewayFilter;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ResponseCacheGatewayFilterFactoryTests {
+
+  private static final String CACHE_STATUS = ResponseCacheGatewayFilterFactory.CACHE_STATUS_HEADER;
+
+  private final ResponseCache cache =
+          new ResponseCache(true, Duration.ofSeconds(60), Duration.ofSeconds(30), 1 << 20, new SimpleMeterRegistry());
+  private final GatewayFilter filter =
+          new ResponseCacheGatewayFilterFactory(cache, new SimpleMeterRegistry()).apply(new Object());
+  private final ResponseCaptureFilter capture = new ResponseCaptureFilter();
+  private final Upstream upstream = new Upstream();
+
+  @Test
+  void followersWaitForTheLeaderAndGetItsResponse() {
+    Sinks.Empty<Void> gate = Sinks.empty();
+    upstream.respond(exchange -> gate.asMono().then(upstream.ok(exchange, "max-age=60", "\"v1\"", "patients")));
+    MockServerWebExchange leader = get();
+    List<MockServerWebExchange> followers = List.of(get(), get(), get());
+
+    CompletableFuture<Void> leading = send(leader).toFuture();
+    List<CompletableFuture<Void>> following = new ArrayList<>();
+    followers.forEach(follower -> following.add(send(follower).toFuture()));
+    assertThat(following).noneMatch(CompletableFuture::isDone);
+    gate.tryEmitEmpty();
+
+    leading.join();
+    following.forEach(CompletableFuture::join);
+    assertThat(upstream.calls()).isEqualTo(1);
+    assertThat(body(leader)).isEqualTo("patients");
+    assertThat(cacheStatus(leader)).isEqualTo("MISS");
+    for (MockServerWebExchange follower : followers) {
+      assertThat(follower.getResponse().getStatusCode()).isEqualTo(HttpStatus.OK);
+      assertThat(body(follower)).isEqualTo("patients");
+      assertThat(cacheStatus(follower)).isEqualTo("COALESCED");
+      assertThat(follower.getResponse().getHeaders().getETag()).isEqualTo("\"v1\"");
+    }
+  }
+
+  @Test
+  void followersGoUpstreamThemselvesWhenTheLeaderFails() {
+    Sinks.Empty<Void> gate = Sinks.empty();
+    AtomicBoolean failed = new AtomicBoolean();
+    upstream.respond(exchange -> failed.compareAndSet(false, true)
+            ? gate.asMono().then(Mono.error(new IllegalStateException("connection reset")))
+            : upstream.ok(exchange, "max-age=60", null, "patients"));
+    MockServerWebExchange follower = get();
+
+    CompletableFuture<Void> leading = send(get()).toFuture();
+    CompletableFuture<Void> following = send(follower).toFuture();
+    gate.tryEmitEmpty();
+
+    assertThat(leading).isCompletedExceptionally();
+    following.join();
+    assertThat(upstream.calls()).isEqualTo(2);
+    assertThat(body(follower)).isEqualTo("patients");
+    // the follower's own fetch is not captured
+    assertThat(cacheStatus(follower)).isNull();
+    assertThat(cache.joinFlight(ResponseCache.key(follower.getRequest()), Sinks.one())).isNull();
+  }
+
+  @Test
+  void followersGoUpstreamThemselvesWhenTheLeaderIsCancelled() {
+    Sinks.Empty<Void> gate = Sinks.empty();
+    AtomicBoolean first = new AtomicBoolean(true);
+    upstream.respond(exchange -> first.compareAndSet(true, false)
+            ? gate.asMono()
+            : upstream.ok(exchange, "max-age=60", null, "patients"));
+    MockServerWebExchange follower = get();
+
+    Disposable leading = send(get()).subscribe();
+    CompletableFuture<Void> following = send(follower).toFuture();
+    assertThat(following).isNotDone();
+    leading.dispose();
+
+    following.join();
+    assertThat(upstream.calls()).isEqualTo(2);
+    assertThat(body(follower)).isEqualTo("patients");
+  }
+
+  @Test
+  void servesFreshEntriesUntilTheClientAsksForNoCache() {
+    upstream.respond(exchange -> upstream.ok(exchange, "max-age=60", null, "patients"));
+    send(get()).block();
+
+    MockServerWebExchange hit = get();
+    send(hit).block();
+    MockServerHttpRequest noCacheRequest = MockServerHttpRequest.get("/api/patients")
+            .header(HttpHeaders.CACHE_CONTROL, "no-cache")
+            .build();
+    MockServerWebExchange bypass = MockServerWebExchange.from(noCacheRequest);
+    send(bypass).block();
+
+    assertThat(cacheStatus(hit)).isEqualTo("HIT");
+    assertThat(hit.getResponse().getHeaders().getFirst(HttpHeaders.AGE)).isEqualTo("0");
+    assertThat(body(hit)).isEqualTo("patients");
+    assertThat(cacheStatus(bypass)).isEqualTo("MISS");
+    assertThat(upstream.calls()).isEqualTo(2);
+  }
+
+  @Test
+  void fetchesAgainWhenUpstreamForbidsStoring() {
+    upstream.respond(exchange -> upstream.ok(exchange, "no-store", null, "patients"));
+
+    MockServerWebExchange first = get();
+    MockServerWebExchange second = get();
+    send(first).block();
+    send(second).block();
+
+    assertThat(cacheStatus(first)).isEqualTo("MISS");
+    assertThat(cacheStatus(second)).isEqualTo("MISS");
+    assertThat(upstream.calls()).isEqualTo(2);
+  }
+
+  @Test
+  void answersIfNoneMatchFromTheCachedEtag() {
+    upstream.respond(exchange -> upstream.ok(exchange, "max-age=60", "\"v1\"", "patients"));
+    send(get()).block();
+
+    MockServerWebExchange matching = MockServerWebExchange.from(MockServerHttpRequest.get("/api/patients")
+            .header(HttpHeaders.IF_NONE_MATCH, "W/\"v0\", W/\"v1\"")
+            .build());
+    send(matching).block();
+
+    assertThat(matching.getResponse().getStatusCode()).isEqualTo(HttpStatus.NOT_MODIFIED);
+    assertThat(body(matching)).isNullOrEmpty();
+    assertThat(cacheStatus(matching)).isEqualTo("HIT");
+    assertThat(upstream.calls()).isEqualTo(1);
+  }
+
+  @Test
+  void revalidatesStaleEntriesWithTheirOwnEtag() {
+    List<String> upstreamValidators = new ArrayList<>();
+    upstream.respond(exchange -> {
+      String ifNoneMatch = exchange.getRequest().getHeaders().getFirst(HttpHeaders.IF_NONE_MATCH);
+      upstreamValidators.add(ifNoneMatch);
+      if ("\"v1\"".equals(ifNoneMatch)) {
+        exchange.getResponse().setStatusCode(HttpStatus.NOT_MODIFIED);
+        exchange.getResponse().getHeaders().setCacheControl("no-cache");
+        exchange.getResponse().getHeaders().setETag("\"v1\"");
+        return exchange.getResponse().writeWith(Flux.empty());
+      }
+      return upstream.ok(exchange, "no-cache", "\"v1\"", "patients");
+    });
+    send(get()).block();
+
+    // the client's own validator is checked by the gateway, never forwarded
+    MockServerWebExchange revalidated = MockServerWebExchange.from(MockServerHttpRequest.get("/api/patients")
+            .header(HttpHeaders.IF_NONE_MATCH, "\"other\"")
+            .build());
+    send(revalidated).block();
+
+    assertThat(upstreamValidators).containsExactly(null, "\"v1\"");
+    assertThat(revalidated.getResponse().getStatusCode()).isEqualTo(HttpStatus.OK);
+    assertThat(body(revalidated)).isEqualTo("patients");
+    assertThat(cacheStatus(revalidated)).isEqualTo("REVALIDATED");
+  }
+
+  @Test
+  void captureWritesThroughWithoutAHandler() {
+    MockServerWebExchange exchange = get();
+
+    capture.filter(exchange, upstreamExchange -> upstream.ok(upstreamExchange, "max-age=60", null, "patients"))
+            .block();
+
+    assertThat(body(exchange)).isEqualTo("patients");
+    assertThat(cacheStatus(exchange)).isNull();
+  }
+
+  @Test
+  void captureHandsTheBodyToTheHandlerAndCompletesIt() {
+    MockServerWebExchange exchange = get();
+    List<String> calls = new ArrayList<>();
+    exchange.getAttributes().put(ResponseCaptureFilter.BODY_HANDLER_ATTR, new ResponseCaptureFilter.BodyHandler() {
+      @Override
+      public Mono<Void> write(ServerHttpResponse response, Flux<DataBuffer> body) {
+        calls.add("write");
+        // the handler gets the undecorated response, writing to it must not loop back here
+        return DataBufferUtils.join(body)
+                .flatMap(buffer -> response.writeWith(Mono.just(buffer)));
+      }
+
+      @Override
+      public void complete() {
+        calls.add("complete");
+      }
+    });
+
+    capture.filter(exchange, upstreamExchange -> upstream.ok(upstreamExchange, "max-age=60", null, "patients"))
+            .block();
+
+    assertThat(calls).containsExactly("write", "complete");
+    assertThat(body(exchange)).isEqualTo("patients");
+  }
+
+  @Test
+  void captureCompletesTheHandlerWhenNothingIsWritten() {
+    MockServerWebExchange exchange = get();
+    AtomicInteger completed = new AtomicInteger();
+    exchange.getAttributes().put(ResponseCaptureFilter.BODY_HANDLER_ATTR, new ResponseCaptureFilter.BodyHandler() {
+      @Override
+      public Mono<Void> write(ServerHttpResponse response, Flux<DataBuffer> body) {
+        throw new AssertionError("no body was written");
+      }
+
+      @Override
+      public void complete() {
+        completed.incrementAndGet();
+      }
+    });
+
+    Mono<Void> failing = capture.filter(exchange, upstreamExchange -> Mono.error(new IllegalStateException("timeout")));
+
+    assertThat(failing.onErrorComplete().block()).isNull();
+    assertThat(completed).hasValue(1);
+  }
+
+  private Mono<Void> send(ServerWebExchange exchange) {
+    return capture.filter(exchange, captured -> filter.filter(captured, upstream::handle));
+  }
+
+  private static MockServerWebExchange get() {
+    return MockServerWebExchange.from(MockServerHttpRequest.get("/api/patients"));
+  }
+
+  private static String body(MockServerWebExchange exchange) {
+    return exchange.getResponse().getBodyAsString().block();
+  }
+
+  private static String cacheStatus(MockServerWebExchange exchange) {
+    return exchange.getResponse().getHeaders().getFirst(CACHE_STATUS);
+  }
+
+  /** Stands in for the routing filters: counts calls and writes through the exchange's response. */
+  private static class Upstream {
+    private final AtomicInteger calls = new AtomicInteger();
+    private Function<ServerWebExchange, Mono<Void>> responder;
+
+    void respond(Function<ServerWebExchange, Mono<Void>> responder) {
+      this.responder = responder;
+    }
+
+    Mono<Void> handle(ServerWebExchange exchange) {
+      calls.incrementAndGet();
+      return responder.apply(exchange);
+    }
+
+    int calls() {
+      return calls.get();
+    }
+
+    Mono<Void> ok(ServerWebExchange exchange, String cacheControl, String etag, String body) {
+      return Mono.defer(() -> {
+        ServerHttpResponse response = exchange.getResponse();
+        response.setStatusCode(HttpStatus.OK);
+        response.getHeaders().setCacheControl(cacheControl);
+        if (etag != null) {
+          response.getHeaders().setETag(etag);
+        }
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        return response.writeWith(Mono.just(response.bufferFactory().wrap(bytes)));
+      });
+    }
+  }
+}
@@ -0,0 +1,173 @@
+package com.pm.apigateway.ratelimit;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class BucketTableTests {
+
+  private static final long IDLE = seconds(1);
+
+  private final BucketTable table = new BucketTable();
+
+  @Test
+  void takesBurstThenRefillsAtReplenishRate() {
+    long key = BucketTable.hash("USER|alice");
+
+    for (int expected = 4; expected >= 0; expected--) {
+      assertThat(table.tryAcquire(key, 10, 5, 1, 0)).isEqualTo(expected);
+    }
+    assertThat(table.tryAcquire(key, 10, 5, 1, 0)).isEqualTo(-1);
+    assertThat(table.tryAcquire(key, 10, 5, 1, millis(50))).isEqualTo(-1);
+
+    // one emission interval later exactly one token is back
+    assertThat(table.tryAcquire(key, 10, 5, 1, millis(100))).isEqualTo(0);
+    assertThat(table.tryAcquire(key, 10, 5, 1, millis(100))).isEqualTo(-1);
+
+    // a full bucket never holds more than the burst
+    assertThat(table.tryAcquire(key, 10, 5, 1, seconds(10))).isEqualTo(4);
+    assertThat(table.tryAcquire(key, 10, 5, 6, seconds(20))).isEqualTo(-1);
+  }
+
+  @Test
+  void keepsProbeChainsIntactWhenAnEarlierKeyIsEvicted() {
+    // same segment and same home slot, so the three keys form one probe chain
+    long first = 5L | 1L << 32;
+    long second = 5L | 2L << 32;
+    long third = 5L | 3L << 32;
+    table.tryAcquire(first, 1, 5, 1, 0);
+    table.tryAcquire(second, 1, 5, 3, 0);
+    table.tryAcquire(third, 1, 5, 3, 0);
+    table.drain(0, millis(500), IDLE);
+
+    // first refilled at 1s and has been idle for more than a second
+    BucketTable.SyncBatch batch = table.drain(0, millis(2500), IDLE);
+
+    assertThat(table.size()).isEqualTo(2);
+    assertThat(deltas(batch)).containsOnlyKeys(second, third);
+    // 3 tokens still out until 3s, a lost bucket would come back full and leave 4
+    assertThat(table.tryAcquire(second, 1, 5, 1, millis(2500))).isEqualTo(3);
+    assertThat(table.tryAcquire(third, 1, 5, 1, millis(2500))).isEqualTo(3);
+    assertThat(table.size()).isEqualTo(2);
+  }
+
+  @Test
+  void shrinksAfterMostKeysGoIdle() {
+    int initialCapacity = table.capacity();
+    for (long key = 1; key <= 100; key++) {
+      table.tryAcquire(key, 1, 5, 1, 0);
+    }
+    table.tryAcquire(1, 1, 5, 5, seconds(5));
+    table.tryAcquire(2, 1, 5, 5, seconds(5));
+    assertThat(table.capacity()).isGreaterThan(initialCapacity);
+    table.drain(0, seconds(5), IDLE);
+
+    table.drain(0, seconds(6), IDLE);
+
+    assertThat(table.size()).isEqualTo(2);
+    assertThat(table.capacity()).isEqualTo(initialCapacity);
+    // both still owe tokens until 10s, fresh buckets would leave 4
+    assertThat(table.tryAcquire(1, 1, 5, 1, seconds(6))).isEqualTo(0);
+    assertThat(table.tryAcquire(2, 1, 5, 1, seconds(6))).isEqualTo(0);
+    assertThat(table.size()).isEqualTo(2);
+  }
+
+  @Test
+  void skipsFullBucketsWithNothingToSync() {
+    long key = BucketTable.hash("USER|alice");
+    table.tryAcquire(key, 10, 5, 1, 0);
+
+    assertThat(deltas(table.drain(0, millis(50), IDLE))).containsEntry(key, 1L);
+    assertThat(deltas(table.drain(0, millis(80), IDLE))).containsEntry(key, 0L);
+    // refilled at 100ms, but not idle long enough to be dropped
+    assertThat(table.drain(0, millis(200), IDLE).size()).isZero();
+    assertThat(table.size()).isEqualTo(1);
+  }
+
+  @Test
+  void settleTakesOutWhatOtherInstancesGranted() {
+    long key = BucketTable.hash("USER|alice");
+    table.tryAcquire(key, 10, 10, 2, 0);
+    table.drain(0, 0, IDLE);
+
+    // Redis has 7 for the window: our 2 and 5 from elsewhere
+    table.settle(key, 2, 7, 0);
+    assertThat(table.tryAcquire(key, 10, 10, 1, 0)).isEqualTo(2);
+
+    // the one more is ours, nothing new from elsewhere
+    table.drain(0, 0, IDLE);
+    table.settle(key, 1, 8, 0);
+    assertThat(table.tryAcquire(key, 10, 10, 1, 0)).isEqualTo(1);
+
+    // more than a burst from elsewhere empties the bucket, no further
+    table.drain(0, 0, IDLE);
+    table.settle(key, 1, 100, 0);
+    assertThat(table.tryAcquire(key, 10, 10, 1, 0)).isEqualTo(-1);
+    assertThat(table.tryAcquire(key, 10, 10, 1, millis(100))).isEqualTo(0);
+  }
+
+  @Test
+  void newWindowResetsWhatWasSeenRemotely() {
+    long key = BucketTable.hash("USER|alice");
+    table.tryAcquire(key, 10, 10, 1, 0);
+    table.drain(0, 0, IDLE);
+    table.settle(key, 1, 4, 0);
+
+    table.tryAcquire(key, 10, 10, 1, seconds(1));
+    table.drain(1, seconds(1), IDLE);
+    // the new window's counter starts over, 2 of its 3 are remote
+    table.settle(key, 1, 3, seconds(1));
+
+    assertThat(table.tryAcquire(key, 10, 10, 1, seconds(1))).isEqualTo(6);
+  }
+
+  @Test
+  void restoreHandsFailedGrantsToTheNextDrain() {
+    long key = BucketTable.hash("USER|alice");
+    table.tryAcquire(key, 10, 10, 3, 0);
+    BucketTable.SyncBatch failed = table.drain(0, 0, IDLE);
+
+    table.restore(key, deltas(failed).get(key));
+    table.tryAcquire(key, 10, 10, 1, 0);
+
+    assertThat(deltas(table.drain(0, 0, IDLE))).containsEntry(key, 4L);
+  }
+
+  @Test
+  void drainGroupsKeysByShard() {
+    for (int i = 0; i < 1000; i++) {
+      table.tryAcquire(BucketTable.hash("USER|" + i), 10, 10, 1, 0);
+    }
+
+    BucketTable.SyncBatch batch = table.drain(0, 0, IDLE);
+
+    int[] shards = new int[batch.size()];
+    for (int i = 0; i < batch.size(); i++) {
+      shards[i] = BucketTable.shardOf(batch.keys()[i]);
+    }
+    assertThat(batch.size()).isEqualTo(1000);
+    assertThat(shards).isSorted();
+    assertThat(Arrays.stream(shards).distinct().count()).isGreaterThan(1);
+  }
+
+  private static Map<Long, Long> deltas(BucketTable.SyncBatch batch) {
+    Map<Long, Long> deltas = new HashMap<>();
+    for (int i = 0; i < batch.size(); i++) {
+      deltas.put(batch.keys()[i], batch.deltas()[i]);
+    }
+    return deltas;
+  }
+
+  private static long millis(long millis) {
+    return TimeUnit.MILLISECONDS.toNanos(millis);
+  }
+
+  private static long seconds(long seconds) {
+    return TimeUnit.SECONDS.toNanos(seconds);
+  }
+}
@@ -1,5 +1,6 @@
 package com.pm.authservice.config;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
@@ -18,8 +19,11 @@ public class SecurityConfig {
     return http.build();
   }
 
+  // raising the strength makes PasswordHasher.needsRehash true for older hashes
   @Bean
-  public PasswordEncoder passwordEncoder() {
-    return new BCryptPasswordEncoder();
+  public PasswordEncoder passwordEncoder(
+          @Value("${auth.password.bcrypt-strength:10}") int strength
+  ) {
+    return new BCryptPasswordEncoder(strength);
   }
 }
@@ -0,0 +1,29 @@
+package com.pm.authservice.exception;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+
+import java.util.HashMap;
+import java.util.Map;
+
+@ControllerAdvice
+public class GlobalExceptionHandler {
+  private static final Logger log = LoggerFactory.getLogger(GlobalExceptionHandler.class);
+
+  @ExceptionHandler(PasswordHashingOverloadedException.class)
+  public ResponseEntity<Map<String, String>> handlePasswordHashingOverloadedException(
+          PasswordHashingOverloadedException ex
+  ){
+    log.warn("Login shed {}", ex.getMessage());
+    Map<String, String> errors = new HashMap<>();
+    errors.put("message", "Too many logins in progress, retry shortly");
+    return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+            .header(HttpHeaders.RETRY_AFTER, "1")
+            .body(errors);
+  }
+}
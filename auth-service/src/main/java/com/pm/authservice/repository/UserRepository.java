@@ -2,10 +2,23 @@ package com.pm.authservice.repository;
 
 import com.pm.authservice.model.User;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.Optional;
 import java.util.UUID;
 
 public interface UserRepository extends JpaRepository<User, UUID> {
   Optional<User> findByEmail(String email);
+
+  @Transactional
+  @Modifying
+  @Query("update User u set u.password = :newHash where u.id = :id and u.password = :previousHash")
+  int updatePassword(
+          @Param("id") UUID id,
+          @Param("previousHash") String previousHash,
+          @Param("newHash") String newHash
+  );
 }
@@ -1,39 +1,72 @@
 package com.pm.authservice.service;
 
 import com.pm.authservice.dto.LoginRequestDto;
+import com.pm.authservice.exception.PasswordHashingOverloadedException;
+import com.pm.authservice.model.User;
 import com.pm.authservice.util.JwtUtil;
 import io.jsonwebtoken.JwtException;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
-import org.springframework.security.crypto.password.PasswordEncoder;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
 
 import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 @Service
 public class AuthService {
+  private static final Logger log = LoggerFactory.getLogger(AuthService.class);
 
   private final UserService userService;
-  private final PasswordEncoder passwordEncoder;
+  private final PasswordHasher passwordHasher;
   private final JwtUtil jwtUtil;
+  // saves upgraded hashes, so the JDBC write never holds a BCrypt thread
+  private final ExecutorService rehashWriter = Executors.newSingleThreadExecutor(r -> {
+    Thread thread = new Thread(r, "password-rehash");
+    thread.setDaemon(true);
+    return thread;
+  });
 
   public AuthService(
           UserService userService,
-          PasswordEncoder passwordEncoder,
+          PasswordHasher passwordHasher,
           JwtUtil jwtUtil
   ) {
     this.userService = userService;
-    this.passwordEncoder = new BCryptPasswordEncoder();
+    this.passwordHasher = passwordHasher;
     this.jwtUtil = jwtUtil;
   }
 
   public Optional<String> authenticate(LoginRequestDto loginRequestDto) {
     Optional<String> token = userService
             .findByEmail(loginRequestDto.getEmail())
-            .filter(u -> passwordEncoder.matches(loginRequestDto.getPassword(), u.getPassword()))
-            .map(u -> jwtUtil.generateToken(u.getEmail(), u.getRole()));
+            .filter(u -> passwordHasher.matches(loginRequestDto.getPassword(), u.getPassword()))
+            .map(u -> {
+              upgradePasswordHash(u, loginRequestDto.getPassword());
+              return jwtUtil.generateToken(u.getEmail(), u.getRole());
+            });
     return token;
   }
 
+  // the plain password is only known here, so hashes below the configured cost
+  // are upgraded in the background after a successful login
+  private void upgradePasswordHash(User user, String rawPassword) {
+    if (!passwordHasher.needsRehash(user.getPassword())) {
+      return;
+    }
+    try {
+      passwordHasher.encode(rawPassword)
+              .thenAcceptAsync(hash -> userService.updatePassword(user, hash), rehashWriter)
+              .exceptionally(ex -> {
+                log.warn("Password rehash failed for user {}: {}", user.getId(), ex.getMessage());
+                return null;
+              });
+    } catch (PasswordHashingOverloadedException e) {
+      log.debug("Hashing pool busy, rehash for user {} left for a later login", user.getId());
+    }
+  }
+
   public boolean validateToken(String token) {
     try {
       jwtUtil.validateToken(token);
@@ -42,4 +75,9 @@ public class AuthService {
       return false;
     }
   }
+
+  @PreDestroy
+  public void shutdown() {
+    rehashWriter.shutdown();
+  }
 }
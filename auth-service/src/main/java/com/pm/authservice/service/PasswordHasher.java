@@ -0,0 +1,99 @@
+package com.pm.authservice.service;
+
+import com.pm.authservice.exception.PasswordHashingOverloadedException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Service;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Runs BCrypt on a fixed pool sized to the CPUs instead of on request threads.
+ * The queue in front of it is bounded; once it is full new work is shed with
+ * {@link PasswordHashingOverloadedException} instead of queueing logins the
+ * node cannot finish in time.
+ */
+@Service
+public class PasswordHasher {
+  private final PasswordEncoder passwordEncoder;
+  private final ThreadPoolExecutor executor;
+  private final Timer matchesTimer;
+  private final Timer encodeTimer;
+  private final Timer queueWaitTimer;
+  private final Counter rejectedCounter;
+
+  public PasswordHasher(
+          PasswordEncoder passwordEncoder,
+          @Value("${auth.hashing.threads:0}") int threads,
+          @Value("${auth.hashing.queue-capacity:64}") int queueCapacity,
+          MeterRegistry meterRegistry
+  ) {
+    this.passwordEncoder = passwordEncoder;
+    int poolSize = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+    AtomicInteger threadCount = new AtomicInteger();
+    this.executor = new ThreadPoolExecutor(
+            poolSize, poolSize, 0L, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(queueCapacity),
+            runnable -> {
+              Thread thread = new Thread(runnable, "password-hash-" + threadCount.incrementAndGet());
+              thread.setDaemon(true);
+              return thread;
+            },
+            new ThreadPoolExecutor.AbortPolicy());
+
+    this.matchesTimer = Timer.builder("custom.auth.hash.duration")
+            .tag("operation", "matches")
+            .register(meterRegistry);
+    this.encodeTimer = Timer.builder("custom.auth.hash.duration")
+            .tag("operation", "encode")
+            .register(meterRegistry);
+    this.queueWaitTimer = meterRegistry.timer("custom.auth.hash.queue.wait");
+    this.rejectedCounter = meterRegistry.counter("custom.auth.hash.rejected");
+    Gauge.builder("custom.auth.hash.queue.depth", executor, e -> e.getQueue().size())
+            .register(meterRegistry);
+  }
+
+  /** Blocks the caller until a hashing thread has checked the password. */
+  public boolean matches(CharSequence rawPassword, String encodedPassword) {
+    return submit(() -> passwordEncoder.matches(rawPassword, encodedPassword), matchesTimer).join();
+  }
+
+  public CompletableFuture<String> encode(CharSequence rawPassword) {
+    return submit(() -> passwordEncoder.encode(rawPassword), encodeTimer);
+  }
+
+  // only parses the stored hash, cheap enough for the caller's thread
+  public boolean needsRehash(String encodedPassword) {
+    return passwordEncoder.upgradeEncoding(encodedPassword);
+  }
+
+  private <T> CompletableFuture<T> submit(Supplier<T> task, Timer timer) {
+    long queuedAt = System.nanoTime();
+    try {
+      return CompletableFuture.supplyAsync(() -> {
+        queueWaitTimer.record(System.nanoTime() - queuedAt, TimeUnit.NANOSECONDS);
+        return timer.record(task);
+      }, executor);
+    } catch (RejectedExecutionException e) {
+      rejectedCounter.increment();
+      throw new PasswordHashingOverloadedException(
+              "Password hashing queue is full (" + executor.getQueue().size() + " waiting)");
+    }
+  }
+
+  @PreDestroy
+  public void shutdown() {
+    executor.shutdown();
+  }
+}
@@ -1,22 +1,71 @@
 package com.pm.authservice.service;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
 import com.pm.authservice.model.User;
 import com.pm.authservice.repository.UserRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import java.time.Duration;
 import java.util.Optional;
-import java.util.UUID;
 
+/**
+ * Looks users up by email through a bounded in-process cache. Unknown emails
+ * are cached as empty for a shorter TTL, so a credential-stuffing burst of
+ * random emails is answered without a query per attempt; Caffeine's size-based
+ * admission keeps those one-off keys from evicting users who log in often.
+ * Changes made through this service invalidate the entry right away, changes
+ * made elsewhere (another instance, the database) show up after the TTL.
+ */
 @Service
 public class UserService {
 
   private final UserRepository userRepository;
+  private final Cache<String, Optional<User>> usersByEmail;
+  private final Counter negativeHitCounter;
 
-  public UserService(UserRepository userRepository) {
+  public UserService(
+          UserRepository userRepository,
+          @Value("${auth.user-cache.maximum-size:10000}") long maximumSize,
+          @Value("${auth.user-cache.ttl:5m}") Duration ttl,
+          @Value("${auth.user-cache.negative-ttl:30s}") Duration negativeTtl,
+          MeterRegistry meterRegistry
+  ) {
     this.userRepository = userRepository;
+    this.usersByEmail = Caffeine.newBuilder()
+            .maximumSize(maximumSize)
+            .expireAfter(Expiry.writing((String email, Optional<User> user) ->
+                    user.isPresent() ? ttl : negativeTtl))
+            .recordStats()
+            .build();
+    CaffeineCacheMetrics.monitor(meterRegistry, usersByEmail, "users");
+    Gauge.builder("custom.auth.user.cache.hit.ratio", usersByEmail, cache -> cache.stats().hitRate())
+            .register(meterRegistry);
+    this.negativeHitCounter = meterRegistry.counter("custom.auth.user.cache.negative.hits");
   }
 
   public Optional<User> findByEmail(String email) {
-    return userRepository.findByEmail(email);
+    // peek without touching the stats, they feed the hit ratio
+    boolean cached = usersByEmail.policy().getIfPresentQuietly(email) != null;
+    // concurrent misses on one email share a single query
+    Optional<User> user = usersByEmail.get(email, userRepository::findByEmail);
+    if (cached && user.isEmpty()) {
+      negativeHitCounter.increment();
+    }
+    return user;
+  }
+
+  // compare-and-set on the old hash so a password changed meanwhile is not overwritten
+  public boolean updatePassword(User user, String newHash) {
+    boolean updated = userRepository.updatePassword(user.getId(), user.getPassword(), newHash) == 1;
+    // emails never change in auth-service, so the user's one entry is all there is
+    usersByEmail.invalidate(user.getEmail());
+    return updated;
   }
 }
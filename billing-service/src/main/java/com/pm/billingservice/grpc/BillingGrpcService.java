@@ -1,7 +1,10 @@
 package com.pm.billingservice.grpc;
 
+import billing.BillingRequest;
 import billing.BillingResponse;
 import billing.BillingServiceGrpc;
+import com.pm.billingservice.model.BillingAccount;
+import com.pm.billingservice.service.BillingAccountService;
 import io.grpc.stub.StreamObserver;
 import net.devh.boot.grpc.server.service.GrpcService;
 import org.slf4j.Logger;
@@ -10,6 +13,11 @@ import org.slf4j.LoggerFactory;
 @GrpcService
 public class BillingGrpcService extends BillingServiceGrpc.BillingServiceImplBase {
   private static final Logger log = LoggerFactory.getLogger(BillingGrpcService.class);
+  private final BillingAccountService billingAccountService;
+
+  public BillingGrpcService(BillingAccountService billingAccountService) {
+    this.billingAccountService = billingAccountService;
+  }
 
   @Override
   public void createBillingAccount(
@@ -17,12 +25,48 @@ public class BillingGrpcService extends BillingServiceGrpc.BillingServiceImplBas
           StreamObserver<BillingResponse> responseObserver
   ){
     log.info("createBillingAccount request received {}", billingRequest.toString());
-    BillingResponse response = BillingResponse.newBuilder()
-            .setAccountId("12345")
-            .setStatus("ACTIVE")
-            .build();
-
-    responseObserver.onNext(response);
+    responseObserver.onNext(createAccount(billingRequest));
     responseObserver.onCompleted();
   }
+
+  // batched clients keep one stream open per batch instead of one call per patient
+  @Override
+  public StreamObserver<BillingRequest> createBillingAccounts(
+          StreamObserver<BillingResponse> responseObserver
+  ) {
+    return new StreamObserver<>() {
+      private int received;
+
+      @Override
+      public void onNext(BillingRequest billingRequest) {
+        received++;
+        log.debug("createBillingAccounts request received {}", billingRequest);
+        responseObserver.onNext(createAccount(billingRequest));
+      }
+
+      @Override
+      public void onError(Throwable t) {
+        log.warn("createBillingAccounts stream failed after {} requests: {}", received, t.getMessage());
+      }
+
+      @Override
+      public void onCompleted() {
+        log.info("createBillingAccounts created {} accounts", received);
+        responseObserver.onCompleted();
+      }
+    };
+  }
+
+  // idempotent per patient: a retried call gets the account created the first time
+  private BillingResponse createAccount(BillingRequest billingRequest) {
+    BillingAccount account = billingAccountService.createIfAbsent(
+            billingRequest.getPatientId(),
+            billingRequest.getName(),
+            billingRequest.getEmail()
+    );
+    return BillingResponse.newBuilder()
+            .setAccountId(account.accountId())
+            .setStatus(account.status())
+            .build();
+  }
 }
@@ -2,30 +2,78 @@ package com.pm.billingservice.kafka;
 
 import billing.events.BillingAccountEvent;
 import com.google.protobuf.InvalidProtocolBufferException;
+import com.pm.billingservice.model.BillingAccount;
+import com.pm.billingservice.service.BillingAccountService;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
 import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.core.KafkaTemplate;
 import org.springframework.stereotype.Service;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.List;
+
 @Service
 public class KafkaConsumer {
 
   private static final Logger log = LoggerFactory.getLogger(KafkaConsumer.class);
+  static final String STATUS_TOPIC = "billing-account-status";
+  private final BillingAccountService billingAccountService;
+  private final KeyOrderedProcessor keyOrderedProcessor;
+  private final KafkaTemplate<String, byte[]> kafkaTemplate;
+
+  public KafkaConsumer(
+          BillingAccountService billingAccountService,
+          KeyOrderedProcessor keyOrderedProcessor,
+          KafkaTemplate<String, byte[]> kafkaTemplate
+  ) {
+    this.billingAccountService = billingAccountService;
+    this.keyOrderedProcessor = keyOrderedProcessor;
+    this.kafkaTemplate = kafkaTemplate;
+  }
 
-  @KafkaListener(topics = "billing-account", groupId = "billing-service")
-  public void consumeEvent(byte[] event) {
-    try{
-      BillingAccountEvent billingAccountEvent = BillingAccountEvent.parseFrom(event);
-      log.info(
-              "Received billing account event: [PatientId={}, PatientName={}, PatientEmail={}]",
-              billingAccountEvent.getPatientId(),
-              billingAccountEvent.getName(),
-              billingAccountEvent.getEmail()
-              );
-      // check if the patient billing account doesn't exist, if not then create it
-
-    }catch (InvalidProtocolBufferException e){
+  /**
+   * Drains BILLING_ACCOUNT_CREATE_REQUESTED events, which patient-service emits
+   * while billing-service is unreachable. Each container thread owns a share of
+   * the partitions (billing.consumer.concurrency, no more than the partition count)
+   * and handles up to max-poll-records events per call. Events are keyed by
+   * patientId; different patients are handled in parallel, one patient's events
+   * in order, so the Redis round trip each creation costs is overlapped across
+   * patients. Creation is idempotent per patientId, so redelivered or duplicate
+   * events are harmless. Each account is reported back on billing-account-status,
+   * where patient-service replaces the PENDING status it recorded at fallback.
+   */
+  @KafkaListener(
+          topics = "billing-account",
+          groupId = "billing-service",
+          batch = "true",
+          concurrency = "${billing.consumer.concurrency:3}"
+  )
+  public void consumeEvents(List<ConsumerRecord<String, byte[]>> events) {
+    keyOrderedProcessor.process(events, this::handle);
+    log.info("Processed {} billing account events", events.size());
+  }
+
+  private void handle(ConsumerRecord<String, byte[]> record) {
+    try {
+      BillingAccountEvent event = BillingAccountEvent.parseFrom(record.value());
+      BillingAccount account = billingAccountService.createIfAbsent(
+              event.getPatientId(), event.getName(), event.getEmail());
+      reportCreated(account);
+    } catch (InvalidProtocolBufferException e) {
       log.error("Error parsing BillingAccountEvent: {}", e.getMessage());
     }
   }
+
+  // waits for the send, a lost report would leave the patient PENDING for good;
+  // a failure fails the record and the batch is redelivered from it
+  private void reportCreated(BillingAccount account) {
+    BillingAccountEvent status = BillingAccountEvent.newBuilder()
+            .setPatientId(account.patientId())
+            .setEventType("BILLING_ACCOUNT_CREATED")
+            .setAccountId(account.accountId())
+            .setStatus(account.status())
+            .build();
+    kafkaTemplate.send(STATUS_TOPIC, account.patientId(), status.toByteArray()).join();
+  }
 }
@@ -0,0 +1,133 @@
+package com.pm.billingservice.kafka;
+
+import jakarta.annotation.PreDestroy;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.listener.BatchListenerFailedException;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+
+/**
+ * Processes a polled batch in parallel without breaking per-key order. Records
+ * are hashed by key into at most {@code billing.consumer.key-lanes} lanes; each
+ * lane runs on its own virtual thread and handles its records in offset order.
+ * A key always lands on one partition and one lane, so a patient's events are
+ * never handled concurrently or out of order. Returns only when every lane is
+ * done, so offsets are committed after the whole batch.
+ * <p>
+ * A lane stops at its first failing record while the others run to the end.
+ * Only then is the earliest failed record reported as a
+ * {@link BatchListenerFailedException}: everything before it in the batch has
+ * been handled, and the error handler redelivers from it while no lane is
+ * still running.
+ */
+@Component
+public class KeyOrderedProcessor {
+  private final int lanes;
+  private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+  public KeyOrderedProcessor(@Value("${billing.consumer.key-lanes:16}") int lanes) {
+    this.lanes = lanes;
+  }
+
+  private record Failure(int index, RuntimeException cause) {}
+
+  public <V> void process(List<ConsumerRecord<String, V>> records, Consumer<ConsumerRecord<String, V>> handler) {
+    int laneCount = Math.min(lanes, records.size());
+    if (laneCount <= 1) {
+      throwIfFailed(records, runLane(records, allIndexes(records.size()), handler));
+      return;
+    }
+
+    List<List<Integer>> byLane = new ArrayList<>(laneCount);
+    for (int i = 0; i < laneCount; i++) {
+      byLane.add(new ArrayList<>());
+    }
+    // records without a key all share lane 0, in offset order
+    for (int i = 0; i < records.size(); i++) {
+      byLane.get(Math.floorMod(Objects.hashCode(records.get(i).key()), laneCount)).add(i);
+    }
+
+    List<Future<Failure>> running = new ArrayList<>(laneCount);
+    for (List<Integer> lane : byLane) {
+      if (!lane.isEmpty()) {
+        running.add(executor.submit(() -> runLane(records, lane, handler)));
+      }
+    }
+    Failure first = null;
+    for (Future<Failure> lane : running) {
+      Failure failure = await(lane);
+      if (failure != null && (first == null || failure.index() < first.index())) {
+        first = failure;
+      }
+    }
+    throwIfFailed(records, first);
+  }
+
+  private static <V> Failure runLane(
+          List<ConsumerRecord<String, V>> records,
+          List<Integer> lane,
+          Consumer<ConsumerRecord<String, V>> handler
+  ) {
+    for (int index : lane) {
+      try {
+        handler.accept(records.get(index));
+      } catch (RuntimeException e) {
+        // later records of this lane may share the failed record's key
+        return new Failure(index, e);
+      }
+    }
+    return null;
+  }
+
+  // waits even when interrupted, a lane left running would race the redelivery
+  private static Failure await(Future<Failure> lane) {
+    boolean interrupted = false;
+    try {
+      while (true) {
+        try {
+          return lane.get();
+        } catch (InterruptedException e) {
+          interrupted = true;
+        } catch (ExecutionException e) {
+          throw new IllegalStateException("Lane failed outside its handler", e.getCause());
+        }
+      }
+    } finally {
+      if (interrupted) {
+        Thread.currentThread().interrupt();
+      }
+    }
+  }
+
+  private static <V> void throwIfFailed(List<ConsumerRecord<String, V>> records, Failure failure) {
+    if (failure == null) {
+      return;
+    }
+    ConsumerRecord<String, V> record = records.get(failure.index());
+    throw new BatchListenerFailedException(
+            "Failed to handle " + record.topic() + "-" + record.partition() + "@" + record.offset(),
+            failure.cause(), record);
+  }
+
+  private static List<Integer> allIndexes(int size) {
+    List<Integer> indexes = new ArrayList<>(size);
+    for (int i = 0; i < size; i++) {
+      indexes.add(i);
+    }
+    return indexes;
+  }
+
+  @PreDestroy
+  public void shutdown() {
+    executor.close();
+  }
+}
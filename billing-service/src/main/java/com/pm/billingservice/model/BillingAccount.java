@@ -0,0 +1,10 @@
+package com.pm.billingservice.model;
+
+public record BillingAccount(
+        String accountId,
+        String patientId,
+        String name,
+        String email,
+        String status
+) {
+}
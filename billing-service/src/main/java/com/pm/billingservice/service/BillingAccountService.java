@@ -0,0 +1,72 @@
+package com.pm.billingservice.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.pm.billingservice.model.BillingAccount;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Service;
+
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Billing accounts keyed by patient id, which doubles as the idempotency store:
+ * the gRPC call and a replayed billing-account event for the same patient end
+ * up with the same account. Accounts are kept in Redis without a TTL and created
+ * with SET NX, so every instance sees the first account created for a patient and
+ * restarts lose nothing. If Redis is unreachable the call fails; the gRPC caller
+ * falls back to an event and the consumer redelivers the batch.
+ */
+@Service
+public class BillingAccountService {
+  private static final Logger log = LoggerFactory.getLogger(BillingAccountService.class);
+
+  private final StringRedisTemplate redisTemplate;
+  private final ObjectMapper objectMapper;
+  private final String keyPrefix;
+
+  public BillingAccountService(
+          StringRedisTemplate redisTemplate,
+          ObjectMapper objectMapper,
+          @Value("${billing.accounts.key-prefix:billing-account:}") String keyPrefix
+  ) {
+    this.redisTemplate = redisTemplate;
+    this.objectMapper = objectMapper;
+    this.keyPrefix = keyPrefix;
+  }
+
+  /** Returns the patient's account, creating it on the first call for that patient. */
+  public BillingAccount createIfAbsent(String patientId, String name, String email) {
+    BillingAccount account = new BillingAccount(UUID.randomUUID().toString(), patientId, name, email, "ACTIVE");
+    if (Boolean.TRUE.equals(redisTemplate.opsForValue().setIfAbsent(keyPrefix + patientId, write(account)))) {
+      log.info("Created billing account {} for patient {}", account.accountId(), patientId);
+      return account;
+    }
+    return findByPatientId(patientId)
+            .orElseThrow(() -> new IllegalStateException("Billing account for patient " + patientId + " vanished"));
+  }
+
+  public Optional<BillingAccount> findByPatientId(String patientId) {
+    String json = redisTemplate.opsForValue().get(keyPrefix + patientId);
+    return Optional.ofNullable(json).map(this::read);
+  }
+
+  private String write(BillingAccount account) {
+    try {
+      return objectMapper.writeValueAsString(account);
+    } catch (JsonProcessingException e) {
+      throw new IllegalStateException("Could not serialize billing account " + account.accountId(), e);
+    }
+  }
+
+  private BillingAccount read(String json) {
+    try {
+      return objectMapper.readValue(json, BillingAccount.class);
+    } catch (JsonProcessingException e) {
+      throw new IllegalStateException("Could not read billing account: " + e.getMessage(), e);
+    }
+  }
+}
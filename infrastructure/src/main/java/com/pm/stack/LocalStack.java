@@ -58,6 +58,7 @@ public class LocalStack extends Stack {
             null,
             null
     );
+    billingService.getNode().addDependency(elasticCacheCluster);
 
     FargateService analyticsService = createFargateService(
             "AnalyticsService",
@@ -74,7 +75,9 @@ public class LocalStack extends Stack {
             patientServiceDb,
             Map.of(
                     "BILLING_SERVICE_ADDRESS", "billing-service.patient-management.local",
-                    "BILLING_SERVICE_GRPC_PORT", "9001"
+                    "BILLING_SERVICE_GRPC_PORT", "9001",
+                    "SPRING_SQL_INIT_PLATFORM", "postgresql",
+                    "PATIENT_SEARCH_ENGINE", "DATABASE"
             ));
     patientService.getNode().addDependency(patientServiceDb);
     patientService.getNode().addDependency(patientDbHealthCheck);
@@ -101,6 +104,7 @@ public class LocalStack extends Stack {
                     Map.of(
                             "SPRING_PROFILES_ACTIVE", "prod",
                             "AUTH_SERVICE_URL", "http://auth-service.patient-management.local:4005",
+                            "JWT_SECRET", "06419d237bcc217ec0d1479d59b6fa19",
                             "REDIS_HOST", elasticCacheCluster.getAttrRedisEndpointAddress(),
                             "REDIS_PORT", elasticCacheCluster.getAttrRedisEndpointPort()
                     )
@@ -254,7 +258,7 @@ public class LocalStack extends Stack {
       envVars.putAll(additionalEnvVars);
     }
     if (db != null) {
-      envVars.put("SPRING_DATASOURCE_URL", "jdbc:postgresql://%s:%s/%s-db".formatted(
+      envVars.put("SPRING_DATASOURCE_URL", "jdbc:postgresql://%s:%s/%s-db?reWriteBatchedInserts=true".formatted(
               db.getDbInstanceEndpointAddress(),
               db.getDbInstanceEndpointPort(),
               imageName
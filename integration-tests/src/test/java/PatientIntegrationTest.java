@@ -30,13 +30,13 @@ public class PatientIntegrationTest {
 
   @Test
   public void shouldReturn429AfterLimitExceeded() throws InterruptedException {
-    String token = getToken();
+    // the seeded user is an ADMIN with a burst of 100, so go without a token and
+    // hit the per-IP limit (5/s, burst 5); the rate limiter runs before JwtValidation
     int total = 10;
     int tooManyRequests = 0;
     for (int i = 1; i <= total; i++) {
       Response response = RestAssured
               .given()
-              .header("Authorization", "Bearer " + token)
               .get("/api/patients");
       System.out.printf("Request %d Status: %d%n", i, response.statusCode());
 
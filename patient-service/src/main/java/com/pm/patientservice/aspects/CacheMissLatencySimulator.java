@@ -0,0 +1,65 @@
+package com.pm.patientservice.aspects;
+
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Demo-only: adds artificial latency to patient list cache misses so the effect
+ * of the Redis cache is visible. Only active with the {@code latency-demo} profile.
+ */
+@Aspect
+@Component
+@Profile("latency-demo")
+public class CacheMissLatencySimulator {
+  private static final Logger log = LoggerFactory.getLogger(CacheMissLatencySimulator.class);
+
+  public enum Distribution { FIXED, UNIFORM, EXPONENTIAL }
+
+  private final Distribution distribution;
+  private final long meanMillis;
+  private final long minMillis;
+  private final long maxMillis;
+
+  public CacheMissLatencySimulator(
+          @Value("${latency.simulation.distribution:FIXED}") Distribution distribution,
+          @Value("${latency.simulation.mean:2s}") Duration mean,
+          @Value("${latency.simulation.min:0ms}") Duration min,
+          @Value("${latency.simulation.max:5s}") Duration max
+  ) {
+    this.distribution = distribution;
+    this.meanMillis = mean.toMillis();
+    this.minMillis = min.toMillis();
+    this.maxMillis = max.toMillis();
+    log.warn("Simulating {} cache miss latency (mean={}ms, min={}ms, max={}ms)",
+            distribution, meanMillis, minMillis, maxMillis);
+  }
+
+  @Around("execution(* com.pm.patientservice.service.PatientService.getPatients(..))")
+  public Object delayCacheMiss(ProceedingJoinPoint joinPoint) throws Throwable {
+    try {
+      Thread.sleep(nextDelayMillis());
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    return joinPoint.proceed();
+  }
+
+  long nextDelayMillis() {
+    ThreadLocalRandom random = ThreadLocalRandom.current();
+    long delay = switch (distribution) {
+      case FIXED -> meanMillis;
+      case UNIFORM -> random.nextLong(minMillis, Math.max(minMillis, maxMillis) + 1);
+      case EXPONENTIAL -> (long) (-meanMillis * Math.log(1 - random.nextDouble()));
+    };
+    return Math.min(Math.max(delay, minMillis), maxMillis);
+  }
+}
@@ -1,6 +1,7 @@
 package com.pm.patientservice.aspects;
 
 import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import org.aspectj.lang.ProceedingJoinPoint;
 import org.aspectj.lang.annotation.Around;
 import org.aspectj.lang.annotation.Aspect;
@@ -21,8 +22,12 @@ public class PatientServiceMetrics {
     meterRegistry.counter("custom.redis.cache.miss","cache","patients")
             .increment();
 
-    Object result = joinPoint.proceed();
-    return result;
+    Timer.Sample sample = Timer.start(meterRegistry);
+    try {
+      return joinPoint.proceed();
+    } finally {
+      sample.stop(meterRegistry.timer("custom.redis.cache.miss.latency", "cache", "patients"));
+    }
 
   }
 
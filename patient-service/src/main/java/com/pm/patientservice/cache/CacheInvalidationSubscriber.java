@@ -0,0 +1,38 @@
+package com.pm.patientservice.cache;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Component;
+
+@Component
+public class CacheInvalidationSubscriber {
+  private static final Logger log = LoggerFactory.getLogger(CacheInvalidationSubscriber.class);
+  private final RedisMessageListenerContainer listenerContainer;
+  private final TwoLevelCacheManager cacheManager;
+
+  public CacheInvalidationSubscriber(
+          RedisMessageListenerContainer listenerContainer,
+          TwoLevelCacheManager cacheManager
+  ) {
+    this.listenerContainer = listenerContainer;
+    this.cacheManager = cacheManager;
+  }
+
+  // Subscribing after startup keeps a Redis outage from failing the whole context;
+  // without the subscription, stale L1 entries still expire after cache.local.ttl.
+  @EventListener(ApplicationReadyEvent.class)
+  public void subscribe() {
+    try {
+      listenerContainer.addMessageListener(
+              cacheManager,
+              new ChannelTopic(TwoLevelCacheManager.INVALIDATION_CHANNEL)
+      );
+    } catch (Exception e) {
+      log.warn("[REDIS]: cache invalidation subscription failed, relying on L1 TTL: {}", e.getMessage());
+    }
+  }
+}
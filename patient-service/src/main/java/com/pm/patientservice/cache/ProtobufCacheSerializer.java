@@ -0,0 +1,154 @@
+package com.pm.patientservice.cache;
+
+import com.google.protobuf.InvalidProtocolBufferException;
+import com.pm.patientservice.dto.PagedPatientResponseDto;
+import com.pm.patientservice.dto.PatientResponseDTO;
+import net.jpountz.lz4.LZ4Compressor;
+import net.jpountz.lz4.LZ4Factory;
+import net.jpountz.lz4.LZ4FastDecompressor;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.data.redis.serializer.SerializationException;
+import patient.cache.CachedPatient;
+import patient.cache.CachedPatientPage;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Stores patient DTOs as protobuf instead of typed JSON. Every value starts with
+ * a one byte header: the low nibble gives the message type, {@link #LZ4} marks a
+ * payload compressed because it was larger than {@code compressionThreshold}
+ * (followed by the 4 byte uncompressed length).
+ *
+ * <p>Any other type, and any entry written before this serializer was enabled
+ * (JSON never starts with a valid header byte), goes through {@code fallback}.
+ */
+public class ProtobufCacheSerializer implements RedisSerializer<Object> {
+  private static final byte PATIENT_PAGE = 0x01;
+  private static final byte PATIENT = 0x02;
+  private static final byte TYPE_MASK = 0x0F;
+  private static final byte LZ4 = 0x10;
+
+  private final RedisSerializer<Object> fallback;
+  private final int compressionThreshold;
+  private final LZ4Compressor compressor;
+  private final LZ4FastDecompressor decompressor;
+
+  /**
+   * @param compressionThreshold payloads of at least this many bytes are LZ4
+   *                             compressed, a negative value disables compression
+   */
+  public ProtobufCacheSerializer(RedisSerializer<Object> fallback, int compressionThreshold) {
+    this.fallback = fallback;
+    this.compressionThreshold = compressionThreshold;
+    LZ4Factory factory = LZ4Factory.fastestInstance();
+    this.compressor = factory.fastCompressor();
+    this.decompressor = factory.fastDecompressor();
+  }
+
+  @Override
+  public byte[] serialize(Object value) throws SerializationException {
+    if (value instanceof PagedPatientResponseDto page) {
+      return frame(PATIENT_PAGE, toProto(page).toByteArray());
+    }
+    if (value instanceof PatientResponseDTO patient) {
+      return frame(PATIENT, toProto(patient).toByteArray());
+    }
+    return fallback.serialize(value);
+  }
+
+  @Override
+  public Object deserialize(byte[] bytes) throws SerializationException {
+    if (bytes == null || bytes.length == 0) {
+      return null;
+    }
+    byte header = bytes[0];
+    byte type = (byte) (header & TYPE_MASK);
+    if ((header & ~(TYPE_MASK | LZ4)) != 0 || (type != PATIENT_PAGE && type != PATIENT)) {
+      return fallback.deserialize(bytes);
+    }
+    byte[] payload = (header & LZ4) != 0
+            ? decompress(bytes)
+            : Arrays.copyOfRange(bytes, 1, bytes.length);
+    try {
+      return type == PATIENT_PAGE
+              ? fromProto(CachedPatientPage.parseFrom(payload))
+              : fromProto(CachedPatient.parseFrom(payload));
+    } catch (InvalidProtocolBufferException e) {
+      throw new SerializationException("Cannot deserialize cached patient value", e);
+    }
+  }
+
+  private byte[] frame(byte type, byte[] payload) {
+    if (compressionThreshold < 0 || payload.length < compressionThreshold) {
+      byte[] framed = new byte[payload.length + 1];
+      framed[0] = type;
+      System.arraycopy(payload, 0, framed, 1, payload.length);
+      return framed;
+    }
+    byte[] compressed = new byte[compressor.maxCompressedLength(payload.length)];
+    int compressedLength = compressor.compress(payload, 0, payload.length, compressed, 0);
+    return ByteBuffer.allocate(5 + compressedLength)
+            .put((byte) (type | LZ4))
+            .putInt(payload.length)
+            .put(compressed, 0, compressedLength)
+            .array();
+  }
+
+  private byte[] decompress(byte[] bytes) {
+    int length = ByteBuffer.wrap(bytes, 1, 4).getInt();
+    byte[] payload = new byte[length];
+    decompressor.decompress(bytes, 5, payload, 0, length);
+    return payload;
+  }
+
+  private static CachedPatientPage toProto(PagedPatientResponseDto page) {
+    CachedPatientPage.Builder builder = CachedPatientPage.newBuilder()
+            .setPage(page.getPage())
+            .setSize(page.getSize())
+            .setTotalPages(page.getTotalPages())
+            .setTotalElements(page.getTotalElements())
+            .setVersion(page.getVersion());
+    if (page.getPatients() != null) {
+      page.getPatients().forEach(patient -> builder.addPatients(toProto(patient)));
+    }
+    return builder.build();
+  }
+
+  private static CachedPatient toProto(PatientResponseDTO patient) {
+    CachedPatient.Builder builder = CachedPatient.newBuilder();
+    if (patient.getId() != null) builder.setId(patient.getId());
+    if (patient.getName() != null) builder.setName(patient.getName());
+    if (patient.getEmail() != null) builder.setEmail(patient.getEmail());
+    if (patient.getAddress() != null) builder.setAddress(patient.getAddress());
+    if (patient.getDateOfBirth() != null) builder.setDateOfBirth(patient.getDateOfBirth());
+    return builder.build();
+  }
+
+  private static PagedPatientResponseDto fromProto(CachedPatientPage page) {
+    List<PatientResponseDTO> patients = page.getPatientsList()
+            .stream()
+            .map(ProtobufCacheSerializer::fromProto)
+            .toList();
+    PagedPatientResponseDto dto = new PagedPatientResponseDto(
+            patients,
+            page.getPage(),
+            page.getSize(),
+            page.getTotalPages(),
+            page.getTotalElements()
+    );
+    dto.setVersion(page.getVersion());
+    return dto;
+  }
+
+  private static PatientResponseDTO fromProto(CachedPatient patient) {
+    PatientResponseDTO dto = new PatientResponseDTO();
+    dto.setId(patient.hasId() ? patient.getId() : null);
+    dto.setName(patient.hasName() ? patient.getName() : null);
+    dto.setEmail(patient.hasEmail() ? patient.getEmail() : null);
+    dto.setAddress(patient.hasAddress() ? patient.getAddress() : null);
+    dto.setDateOfBirth(patient.hasDateOfBirth() ? patient.getDateOfBirth() : null);
+    return dto;
+  }
+}
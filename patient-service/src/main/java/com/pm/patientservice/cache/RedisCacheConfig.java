@@ -5,36 +5,59 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.SerializationFeature;
 import com.fasterxml.jackson.databind.jsontype.impl.LaissezFaireSubTypeValidator;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.annotation.CachingConfigurer;
 import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.interceptor.CacheErrorHandler;
+import org.springframework.cache.interceptor.LoggingCacheErrorHandler;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+import org.springframework.data.redis.cache.BatchStrategies;
 import org.springframework.data.redis.cache.RedisCacheConfiguration;
 import org.springframework.data.redis.cache.RedisCacheManager;
+import org.springframework.data.redis.cache.RedisCacheWriter;
 import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
 import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
 import org.springframework.data.redis.serializer.RedisSerializationContext;
+import org.springframework.data.redis.serializer.RedisSerializer;
 import org.springframework.data.redis.serializer.StringRedisSerializer;
 
 import java.time.Duration;
 
 @Configuration
-@EnableCaching
-public class RedisCacheConfig {
-  @Bean
-  public RedisCacheManager cacheManager(RedisConnectionFactory connectionFactory) {
-    ObjectMapper objectMapper = new ObjectMapper();
-    objectMapper.registerModule(new JavaTimeModule());
-    objectMapper.disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
-    objectMapper.activateDefaultTyping(
-            LaissezFaireSubTypeValidator.instance,
-            ObjectMapper.DefaultTyping.NON_FINAL,
-            JsonTypeInfo.As.PROPERTY
-    );
+// cache advice runs outermost so the aspects in com.pm.patientservice.aspects only see misses
+@EnableCaching(order = Ordered.HIGHEST_PRECEDENCE)
+public class RedisCacheConfig implements CachingConfigurer {
+  // a Redis outage degrades to cache misses instead of failing the request
+  @Override
+  public CacheErrorHandler errorHandler() {
+    return new LoggingCacheErrorHandler();
+  }
 
-    GenericJackson2JsonRedisSerializer serializer = new GenericJackson2JsonRedisSerializer(objectMapper);
+  @Bean
+  public TwoLevelCacheManager cacheManager(
+          RedisConnectionFactory connectionFactory,
+          StringRedisTemplate redisTemplate,
+          MeterRegistry meterRegistry,
+          @Value("${cache.redis.ttl:60m}") Duration redisTtl,
+          @Value("${cache.redis.search-ttl:60s}") Duration searchTtl,
+          @Value("${cache.redis.patient-ttl:60s}") Duration patientTtl,
+          @Value("${cache.redis.serializer:protobuf}") String serializerFormat,
+          @Value("${cache.redis.compression-threshold:1024}") int compressionThreshold,
+          @Value("${cache.local.maximum-size:1000}") long localMaximumSize,
+          @Value("${cache.local.ttl:30s}") Duration localTtl
+  ) {
+    RedisSerializer<Object> serializer = jsonSerializer();
+    if ("protobuf".equalsIgnoreCase(serializerFormat)) {
+      serializer = new ProtobufCacheSerializer(serializer, compressionThreshold);
+    }
 
     RedisCacheConfiguration config = RedisCacheConfiguration.defaultCacheConfig()
-            .entryTtl(Duration.ofMinutes(10))
+            .entryTtl(redisTtl)
             .disableCachingNullValues()
             .serializeKeysWith(
                     RedisSerializationContext
@@ -46,9 +69,47 @@ public class RedisCacheConfig {
                             .SerializationPair
                             .fromSerializer(serializer)
             );
-    return RedisCacheManager
-            .builder(connectionFactory)
+    RedisCacheManager redisCacheManager = RedisCacheManager
+            // SCAN instead of KEYS when clearing a whole cache on writes
+            .builder(RedisCacheWriter.nonLockingRedisCacheWriter(
+                    connectionFactory, BatchStrategies.scan(1000)))
             .cacheDefaults(config)
+            .withCacheConfiguration("patientSearch", config.entryTtl(searchTtl))
+            // a read overlapping an update or delete can put the old patient back after the
+            // eviction, and entries carry no version to tell, so keep them short-lived
+            .withCacheConfiguration("patient", config.entryTtl(patientTtl))
+            .enableStatistics()
             .build();
+    redisCacheManager.afterPropertiesSet();
+
+    return new TwoLevelCacheManager(
+            redisCacheManager,
+            redisTemplate,
+            meterRegistry,
+            localMaximumSize,
+            localTtl
+    );
+  }
+
+  static RedisSerializer<Object> jsonSerializer() {
+    ObjectMapper objectMapper = new ObjectMapper();
+    objectMapper.registerModule(new JavaTimeModule());
+    objectMapper.disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+    objectMapper.activateDefaultTyping(
+            LaissezFaireSubTypeValidator.instance,
+            ObjectMapper.DefaultTyping.NON_FINAL,
+            JsonTypeInfo.As.PROPERTY
+    );
+    return new GenericJackson2JsonRedisSerializer(objectMapper);
+  }
+
+  @Bean
+  public RedisMessageListenerContainer cacheInvalidationListenerContainer(
+          RedisConnectionFactory connectionFactory
+  ) {
+    // listeners are added by CacheInvalidationSubscriber once the app is up
+    RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+    container.setConnectionFactory(connectionFactory);
+    return container;
   }
 }
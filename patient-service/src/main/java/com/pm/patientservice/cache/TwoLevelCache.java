@@ -0,0 +1,188 @@
+package com.pm.patientservice.cache;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.cache.Cache;
+import org.springframework.cache.support.SimpleValueWrapper;
+import org.springframework.data.redis.cache.RedisCache;
+import org.springframework.data.redis.cache.RedisCacheConfiguration;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.function.BiConsumer;
+
+/**
+ * An in-process Caffeine cache (L1) in front of a Redis cache (L2). Reads try
+ * L1 first and fill it from L2. Writes go to both tiers and are announced
+ * through {@code invalidationPublisher} so other instances drop their L1 copy.
+ */
+public class TwoLevelCache implements Cache {
+  private static final Logger log = LoggerFactory.getLogger(TwoLevelCache.class);
+  private final String name;
+  private final com.github.benmanes.caffeine.cache.Cache<Object, Object> localCache;
+  private final Cache redisCache;
+  private final StringRedisTemplate redisTemplate;
+  private final BiConsumer<String, Object> invalidationPublisher;
+
+  public TwoLevelCache(
+          String name,
+          com.github.benmanes.caffeine.cache.Cache<Object, Object> localCache,
+          Cache redisCache,
+          StringRedisTemplate redisTemplate,
+          BiConsumer<String, Object> invalidationPublisher
+  ) {
+    this.name = name;
+    this.localCache = localCache;
+    this.redisCache = redisCache;
+    this.redisTemplate = redisTemplate;
+    this.invalidationPublisher = invalidationPublisher;
+  }
+
+  @Override
+  public String getName() {
+    return name;
+  }
+
+  @Override
+  public Object getNativeCache() {
+    return redisCache.getNativeCache();
+  }
+
+  public com.github.benmanes.caffeine.cache.Cache<Object, Object> getLocalCache() {
+    return localCache;
+  }
+
+  public Cache getRedisCache() {
+    return redisCache;
+  }
+
+  @Override
+  public ValueWrapper get(Object key) {
+    Object value = localCache.getIfPresent(key);
+    if (value != null) {
+      return new SimpleValueWrapper(value);
+    }
+    ValueWrapper wrapper = redisCache.get(key);
+    if (wrapper != null && wrapper.get() != null) {
+      localCache.put(key, wrapper.get());
+    }
+    return wrapper;
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public <T> T get(Object key, Class<T> type) {
+    ValueWrapper wrapper = get(key);
+    Object value = wrapper != null ? wrapper.get() : null;
+    if (value != null && type != null && !type.isInstance(value)) {
+      throw new IllegalStateException(
+              "Cached value is not of required type [" + type.getName() + "]: " + value);
+    }
+    return (T) value;
+  }
+
+  /**
+   * Values for the keys found in either tier, read from L1 first and with a
+   * single MGET for the rest. A failing Redis read counts as misses, as it does
+   * for single gets through the cache error handler.
+   */
+  public Map<Object, Object> getAll(Collection<?> keys) {
+    Map<Object, Object> found = new HashMap<>(localCache.getAllPresent(keys));
+    List<Object> missing = new ArrayList<>();
+    for (Object key : keys) {
+      if (!found.containsKey(key)) {
+        missing.add(key);
+      }
+    }
+    if (missing.isEmpty() || !(redisCache instanceof RedisCache cache)) {
+      return found;
+    }
+
+    RedisCacheConfiguration config = cache.getCacheConfiguration();
+    byte[][] redisKeys = new byte[missing.size()][];
+    for (int i = 0; i < redisKeys.length; i++) {
+      String key = config.usePrefix()
+              ? config.getKeyPrefixFor(name) + missing.get(i)
+              : missing.get(i).toString();
+      redisKeys[i] = bytes(config.getKeySerializationPair().write(key));
+    }
+    List<byte[]> values;
+    try {
+      values = redisTemplate.execute(
+              (RedisCallback<List<byte[]>>) connection -> connection.stringCommands().mGet(redisKeys));
+    } catch (RuntimeException e) {
+      log.warn("Cache '{}' failed to get {} entries: {}", name, missing.size(), e.getMessage());
+      return found;
+    }
+    for (int i = 0; values != null && i < values.size(); i++) {
+      byte[] raw = values.get(i);
+      if (raw == null) {
+        continue;
+      }
+      Object value = config.getValueSerializationPair().read(ByteBuffer.wrap(raw));
+      if (value != null) {
+        found.put(missing.get(i), value);
+        localCache.put(missing.get(i), value);
+      }
+    }
+    return found;
+  }
+
+  private static byte[] bytes(ByteBuffer buffer) {
+    byte[] bytes = new byte[buffer.remaining()];
+    buffer.get(bytes);
+    return bytes;
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public <T> T get(Object key, Callable<T> valueLoader) {
+    Object value = localCache.getIfPresent(key);
+    if (value != null) {
+      return (T) value;
+    }
+    T loaded = redisCache.get(key, valueLoader);
+    if (loaded != null) {
+      localCache.put(key, loaded);
+    }
+    return loaded;
+  }
+
+  @Override
+  public void put(Object key, Object value) {
+    redisCache.put(key, value);
+    if (value != null) {
+      localCache.put(key, value);
+    }
+    invalidationPublisher.accept(name, key);
+  }
+
+  @Override
+  public void evict(Object key) {
+    redisCache.evict(key);
+    localCache.invalidate(key);
+    invalidationPublisher.accept(name, key);
+  }
+
+  @Override
+  public void clear() {
+    redisCache.clear();
+    localCache.invalidateAll();
+    invalidationPublisher.accept(name, null);
+  }
+
+  void evictLocal(Object key) {
+    if (key == null) {
+      localCache.invalidateAll();
+    } else {
+      localCache.invalidate(key);
+    }
+  }
+}
@@ -0,0 +1,103 @@
+package com.pm.patientservice.cache;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.actuate.metrics.cache.RedisCacheMetrics;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.data.redis.cache.RedisCache;
+import org.springframework.data.redis.cache.RedisCacheManager;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Hands out {@link TwoLevelCache}s and keeps their L1 tiers consistent across
+ * instances via Redis pub/sub. Each tier reports its own {@code cache.gets}
+ * metrics, tagged {@code tier=l1} and {@code tier=l2}.
+ */
+public class TwoLevelCacheManager implements CacheManager, MessageListener {
+  private static final Logger log = LoggerFactory.getLogger(TwoLevelCacheManager.class);
+  public static final String INVALIDATION_CHANNEL = "patient-service:cache-invalidation";
+  private static final String CLEAR_ALL = "*";
+
+  private final RedisCacheManager redisCacheManager;
+  private final StringRedisTemplate redisTemplate;
+  private final MeterRegistry meterRegistry;
+  private final long localMaximumSize;
+  private final Duration localTtl;
+  private final String instanceId = UUID.randomUUID().toString();
+  private final Map<String, TwoLevelCache> caches = new ConcurrentHashMap<>();
+
+  public TwoLevelCacheManager(
+          RedisCacheManager redisCacheManager,
+          StringRedisTemplate redisTemplate,
+          MeterRegistry meterRegistry,
+          long localMaximumSize,
+          Duration localTtl
+  ) {
+    this.redisCacheManager = redisCacheManager;
+    this.redisTemplate = redisTemplate;
+    this.meterRegistry = meterRegistry;
+    this.localMaximumSize = localMaximumSize;
+    this.localTtl = localTtl;
+  }
+
+  @Override
+  public Cache getCache(String name) {
+    return caches.computeIfAbsent(name, this::createCache);
+  }
+
+  @Override
+  public Collection<String> getCacheNames() {
+    return caches.keySet();
+  }
+
+  private TwoLevelCache createCache(String name) {
+    com.github.benmanes.caffeine.cache.Cache<Object, Object> localCache = Caffeine.newBuilder()
+            .maximumSize(localMaximumSize)
+            .expireAfterWrite(localTtl)
+            .recordStats()
+            .build();
+    CaffeineCacheMetrics.monitor(meterRegistry, localCache, name, Tags.of("tier", "l1"));
+
+    Cache redisCache = redisCacheManager.getCache(name);
+    if (redisCache instanceof RedisCache cache) {
+      new RedisCacheMetrics(cache, Tags.of("tier", "l2")).bindTo(meterRegistry);
+    }
+    return new TwoLevelCache(name, localCache, redisCache, redisTemplate, this::publishInvalidation);
+  }
+
+  private void publishInvalidation(String cacheName, Object key) {
+    String message = instanceId + "|" + cacheName + "|" + (key == null ? CLEAR_ALL : key.toString());
+    try {
+      redisTemplate.convertAndSend(INVALIDATION_CHANNEL, message);
+    } catch (Exception e) {
+      // peers fall back to their L1 TTL
+      log.warn("Failed to publish cache invalidation for {}: {}", cacheName, e.getMessage());
+    }
+  }
+
+  @Override
+  public void onMessage(Message message, byte[] pattern) {
+    String[] parts = new String(message.getBody(), StandardCharsets.UTF_8).split("\\|", 3);
+    if (parts.length != 3 || instanceId.equals(parts[0])) {
+      return;
+    }
+    TwoLevelCache cache = caches.get(parts[1]);
+    if (cache != null) {
+      cache.evictLocal(CLEAR_ALL.equals(parts[2]) ? null : parts[2]);
+    }
+  }
+}
@@ -0,0 +1,18 @@
+package com.pm.patientservice.config;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+@Configuration
+@EnableScheduling
+public class AsyncConfig {
+  // blocking follow-up work of the create pipeline, one virtual thread per task
+  @Bean(destroyMethod = "close")
+  public ExecutorService patientPipelineExecutor() {
+    return Executors.newVirtualThreadPerTaskExecutor();
+  }
+}
@@ -1,17 +1,34 @@
 package com.pm.patientservice.controller;
 
+import com.pm.patientservice.dto.BillingStatusResponseDTO;
+import com.pm.patientservice.dto.CursorPagedPatientResponseDto;
 import com.pm.patientservice.dto.PagedPatientResponseDto;
 import com.pm.patientservice.dto.PatientRequestDTO;
 import com.pm.patientservice.dto.PatientResponseDTO;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.pm.patientservice.dto.validators.CreatePatientValidationGroup;
+import com.pm.patientservice.service.PatientImportService;
 import com.pm.patientservice.service.PatientService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.validation.constraints.Size;
 import jakarta.validation.groups.Default;
+import org.springframework.http.ETag;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
 
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
 import java.util.UUID;
 
@@ -19,10 +36,20 @@ import java.util.UUID;
 @RequestMapping("/patients")
 @Tag(name = "Patient", description = "API for managing Patients")
 public class PatientController {
+    private static final String TEXT_CSV = "text/csv";
+
     private final PatientService patientService;
+    private final PatientImportService patientImportService;
+    private final ObjectMapper objectMapper;
 
-    public PatientController(PatientService patientService) {
+    public PatientController(
+            PatientService patientService,
+            PatientImportService patientImportService,
+            ObjectMapper objectMapper
+    ) {
         this.patientService = patientService;
+        this.patientImportService = patientImportService;
+        this.objectMapper = objectMapper;
     }
 
     @GetMapping
@@ -32,15 +59,77 @@ public class PatientController {
             @RequestParam(defaultValue = "10") int size,
             @RequestParam(defaultValue = "asc") String sort,
             @RequestParam(defaultValue = "name") String sortField,
-            @RequestParam(defaultValue = "") String searchValue
+            @RequestParam(defaultValue = "") String searchValue,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch
     ) {
+        boolean versioned = patientService.isVersioned(searchValue);
+        // the one counter lookup per request: it answers If-None-Match, skipping the
+        // page query and the JSON entirely, and keys the cached page
+        long version = patientService.getPatientsVersion();
+        if (versioned && ifNoneMatch != null) {
+            ETag current = ETag.create(patientsETag(version));
+            if (ETag.parse(ifNoneMatch).stream().anyMatch(etag -> etag.compare(current, false))) {
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                        .eTag(current.formattedTag())
+                        .build();
+            }
+        }
         PagedPatientResponseDto patients = patientService.getPatients(
+                version,
                 page,
                 size,
                 sort,
                 sortField,
                 searchValue
         );
+        // pages cached before versions existed read back as 0 and stay untagged
+        if (!versioned || patients.getVersion() == 0) {
+            return ResponseEntity.ok(patients);
+        }
+        return ResponseEntity.ok()
+                .eTag(patientsETag(patients.getVersion()))
+                .body(patients);
+    }
+
+    // the version the page was read at, which a cached page may lag behind
+    private static String patientsETag(long version) {
+        return "\"patients-" + version + "\"";
+    }
+
+    @GetMapping(params = "ids")
+    @Operation(summary = "Get several Patients by ID")
+    public ResponseEntity<List<PatientResponseDTO>> getPatientsByIds(
+            @RequestParam @Size(max = 100) List<UUID> ids
+    ) {
+        return ResponseEntity.ok(patientService.getPatientsByIds(ids));
+    }
+
+    @GetMapping("/{id}")
+    @Operation(summary = "Get a Patient")
+    public ResponseEntity<PatientResponseDTO> getPatient(
+            @PathVariable UUID id
+    ) {
+        return ResponseEntity.ok(patientService.getPatient(id));
+    }
+
+    @GetMapping("/cursor")
+    @Operation(summary = "Get Patients using keyset pagination")
+    public ResponseEntity<CursorPagedPatientResponseDto> getPatientsByCursor(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "10") int size,
+            @RequestParam(defaultValue = "asc") String sort,
+            @RequestParam(defaultValue = "name") String sortField,
+            @RequestParam(defaultValue = "") String searchValue,
+            @RequestParam(defaultValue = "false") boolean includeTotal
+    ) {
+        CursorPagedPatientResponseDto patients = patientService.getPatientsByCursor(
+                cursor,
+                size,
+                sort,
+                sortField,
+                searchValue,
+                includeTotal
+        );
         return ResponseEntity.ok(patients);
     }
 
@@ -53,6 +142,55 @@ public class PatientController {
         return ResponseEntity.ok().body(patientResponseDTO);
     }
 
+    @PostMapping("/async")
+    @Operation(summary = "Create a new Patient, provisioning billing in the background")
+    public ResponseEntity<PatientResponseDTO> createPatientAsync(
+            @Validated({Default.class, CreatePatientValidationGroup.class}) @RequestBody PatientRequestDTO patientRequestDTO
+    ) {
+        PatientResponseDTO patientResponseDTO = patientService.createPatientAsync(patientRequestDTO);
+        return ResponseEntity.status(HttpStatus.ACCEPTED)
+                .header("Location", "/patients/" + patientResponseDTO.getId() + "/billing-status")
+                .body(patientResponseDTO);
+    }
+
+    // the body is streamed in and the progress streamed out, one JSON line per chunk
+    @PostMapping(value = "/import", consumes = {MediaType.APPLICATION_NDJSON_VALUE, TEXT_CSV})
+    @Operation(summary = "Bulk import Patients from NDJSON or CSV, reporting progress as NDJSON")
+    public void importPatients(
+            HttpServletRequest request,
+            HttpServletResponse response
+    ) throws IOException {
+        PatientImportService.Format format = MediaType.parseMediaType(request.getContentType())
+                .isCompatibleWith(MediaType.parseMediaType(TEXT_CSV))
+                ? PatientImportService.Format.CSV
+                : PatientImportService.Format.NDJSON;
+
+        try (Reader body = new InputStreamReader(request.getInputStream(), StandardCharsets.UTF_8)) {
+            patientImportService.importPatients(body, format, progress -> {
+                try {
+                    if (!response.isCommitted()) {
+                        response.setContentType(MediaType.APPLICATION_NDJSON_VALUE);
+                        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+                    }
+                    Writer writer = response.getWriter();
+                    writer.write(objectMapper.writeValueAsString(progress));
+                    writer.write('\n');
+                    writer.flush();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        }
+    }
+
+    @GetMapping("/{id}/billing-status")
+    @Operation(summary = "Get the billing account status of a Patient")
+    public ResponseEntity<BillingStatusResponseDTO> getBillingStatus(
+            @PathVariable UUID id
+    ) {
+        return ResponseEntity.ok(patientService.getBillingStatus(id));
+    }
+
     @PutMapping("/{id}")
     @Operation(summary = "Update a Patient")
     public ResponseEntity<PatientResponseDTO> updatePatient(
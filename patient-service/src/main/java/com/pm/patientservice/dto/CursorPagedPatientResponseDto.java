@@ -0,0 +1,58 @@
+package com.pm.patientservice.dto;
+
+import java.util.List;
+
+public class CursorPagedPatientResponseDto {
+  private List<PatientResponseDTO> patients;
+  private int size;
+  private String nextCursor;
+  private Long totalElements;
+
+  public CursorPagedPatientResponseDto() {}
+
+  public CursorPagedPatientResponseDto(
+          List<PatientResponseDTO> patients,
+          int size,
+          String nextCursor,
+          Long totalElements
+  ) {
+    this.patients = patients;
+    this.size = size;
+    this.nextCursor = nextCursor;
+    this.totalElements = totalElements;
+  }
+
+  public List<PatientResponseDTO> getPatients() {
+    return patients;
+  }
+
+  public void setPatients(List<PatientResponseDTO> patients) {
+    this.patients = patients;
+  }
+
+  public int getSize() {
+    return size;
+  }
+
+  public void setSize(int size) {
+    this.size = size;
+  }
+
+  /** Opaque cursor for the next page, null on the last page. */
+  public String getNextCursor() {
+    return nextCursor;
+  }
+
+  public void setNextCursor(String nextCursor) {
+    this.nextCursor = nextCursor;
+  }
+
+  /** Only filled in when the caller asked for it with includeTotal=true. */
+  public Long getTotalElements() {
+    return totalElements;
+  }
+
+  public void setTotalElements(Long totalElements) {
+    this.totalElements = totalElements;
+  }
+}
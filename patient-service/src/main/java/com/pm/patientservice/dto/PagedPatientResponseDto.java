@@ -1,5 +1,7 @@
 package com.pm.patientservice.dto;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
 import java.util.List;
 
 public class PagedPatientResponseDto {
@@ -8,6 +10,9 @@ public class PagedPatientResponseDto {
   private int size;
   private int totalPages;
   private int totalElements;
+  // patient table version the page was read at, sent as the ETag rather than in the body
+  @JsonIgnore
+  private long version;
 
   public PagedPatientResponseDto() {}
 
@@ -64,4 +69,12 @@ public class PagedPatientResponseDto {
   public void setTotalElements(int totalElements) {
     this.totalElements = totalElements;
   }
+
+  public long getVersion() {
+    return version;
+  }
+
+  public void setVersion(long version) {
+    this.version = version;
+  }
 }
@@ -0,0 +1,40 @@
+package com.pm.patientservice.dto;
+
+public class PatientImportErrorDTO {
+  private long row;
+  private String email;
+  private String message;
+
+  public PatientImportErrorDTO() {}
+
+  public PatientImportErrorDTO(long row, String email, String message) {
+    this.row = row;
+    this.email = email;
+    this.message = message;
+  }
+
+  /** 1-based line number in the uploaded file, the CSV header counts as line 1. */
+  public long getRow() {
+    return row;
+  }
+
+  public void setRow(long row) {
+    this.row = row;
+  }
+
+  public String getEmail() {
+    return email;
+  }
+
+  public void setEmail(String email) {
+    this.email = email;
+  }
+
+  public String getMessage() {
+    return message;
+  }
+
+  public void setMessage(String message) {
+    this.message = message;
+  }
+}
@@ -0,0 +1,71 @@
+package com.pm.patientservice.dto;
+
+import java.util.List;
+
+/**
+ * One line of the import response stream, written after every chunk. Counts are
+ * cumulative; errors only cover the rows of that chunk.
+ */
+public class PatientImportProgressDTO {
+  private long rowsRead;
+  private long imported;
+  private long failed;
+  private boolean done;
+  private List<PatientImportErrorDTO> errors;
+
+  public PatientImportProgressDTO() {}
+
+  public PatientImportProgressDTO(
+          long rowsRead,
+          long imported,
+          long failed,
+          boolean done,
+          List<PatientImportErrorDTO> errors
+  ) {
+    this.rowsRead = rowsRead;
+    this.imported = imported;
+    this.failed = failed;
+    this.done = done;
+    this.errors = errors;
+  }
+
+  public long getRowsRead() {
+    return rowsRead;
+  }
+
+  public void setRowsRead(long rowsRead) {
+    this.rowsRead = rowsRead;
+  }
+
+  public long getImported() {
+    return imported;
+  }
+
+  public void setImported(long imported) {
+    this.imported = imported;
+  }
+
+  public long getFailed() {
+    return failed;
+  }
+
+  public void setFailed(long failed) {
+    this.failed = failed;
+  }
+
+  public boolean isDone() {
+    return done;
+  }
+
+  public void setDone(boolean done) {
+    this.done = done;
+  }
+
+  public List<PatientImportErrorDTO> getErrors() {
+    return errors;
+  }
+
+  public void setErrors(List<PatientImportErrorDTO> errors) {
+    this.errors = errors;
+  }
+}
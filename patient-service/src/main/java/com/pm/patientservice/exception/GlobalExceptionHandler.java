@@ -3,6 +3,7 @@ package com.pm.patientservice.exception;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.http.HttpStatus;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.annotation.ControllerAdvice;
@@ -49,4 +50,34 @@ public class GlobalExceptionHandler {
     errors.put("message", "Patient not found");
     return  ResponseEntity.badRequest().body(errors);
   }
+
+  @ExceptionHandler(InvalidCursorException.class)
+  public ResponseEntity<Map<String, String>> handleInvalidCursorException(
+          InvalidCursorException ex
+  ){
+    log.warn("Invalid cursor {}", ex.getMessage());
+    Map<String, String> errors = new HashMap<>();
+    errors.put("message", ex.getMessage());
+    return ResponseEntity.badRequest().body(errors);
+  }
+
+  @ExceptionHandler(InvalidImportException.class)
+  public ResponseEntity<Map<String, String>> handleInvalidImportException(
+          InvalidImportException ex
+  ){
+    log.warn("Invalid import {}", ex.getMessage());
+    Map<String, String> errors = new HashMap<>();
+    errors.put("message", ex.getMessage());
+    return ResponseEntity.badRequest().body(errors);
+  }
+
+  @ExceptionHandler(ObjectOptimisticLockingFailureException.class)
+  public ResponseEntity<Map<String, String>> handleOptimisticLockingFailure(
+          ObjectOptimisticLockingFailureException ex
+  ){
+    log.warn("Concurrent patient update {}", ex.getMessage());
+    Map<String, String> errors = new HashMap<>();
+    errors.put("message", "Patient was modified concurrently, retry the request");
+    return ResponseEntity.status(HttpStatus.CONFLICT).body(errors);
+  }
 }
@@ -0,0 +1,7 @@
+package com.pm.patientservice.exception;
+
+public class InvalidImportException extends RuntimeException {
+  public InvalidImportException(String message) {
+    super(message);
+  }
+}
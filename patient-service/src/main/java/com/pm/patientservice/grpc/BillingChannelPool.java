@@ -0,0 +1,51 @@
+package com.pm.patientservice.grpc;
+
+import io.grpc.ManagedChannel;
+import io.grpc.ManagedChannelBuilder;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A fixed set of channels to billing-service handed out round robin, so calls
+ * spread over several HTTP/2 connections instead of queueing on one. Keepalive
+ * pings detect dead connections before a call waits on them for its deadline.
+ */
+class BillingChannelPool {
+  private final List<ManagedChannel> channels;
+  private final AtomicInteger next = new AtomicInteger();
+
+  BillingChannelPool(
+          String address,
+          int port,
+          int size,
+          Duration keepAliveTime,
+          Duration keepAliveTimeout
+  ) {
+    channels = new ArrayList<>(size);
+    for (int i = 0; i < size; i++) {
+      channels.add(ManagedChannelBuilder.forAddress(address, port)
+              .usePlaintext()
+              .keepAliveTime(keepAliveTime.toMillis(), TimeUnit.MILLISECONDS)
+              .keepAliveTimeout(keepAliveTimeout.toMillis(), TimeUnit.MILLISECONDS)
+              .keepAliveWithoutCalls(true)
+              .build());
+    }
+  }
+
+  ManagedChannel next() {
+    return channels.get(Math.floorMod(next.getAndIncrement(), channels.size()));
+  }
+
+  void shutdown() throws InterruptedException {
+    channels.forEach(ManagedChannel::shutdown);
+    for (ManagedChannel channel : channels) {
+      if (!channel.awaitTermination(5, TimeUnit.SECONDS)) {
+        channel.shutdownNow();
+      }
+    }
+  }
+}
@@ -0,0 +1,114 @@
+package com.pm.patientservice.grpc;
+
+import billing.BillingRequest;
+import billing.BillingResponse;
+import billing.BillingServiceGrpc;
+import io.grpc.stub.StreamObserver;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Coalesces concurrent billing requests into one CreateBillingAccounts stream.
+ * A batch is sent when it reaches {@code maxBatchSize} or {@code windowMs}
+ * after its first request, whichever comes first. Each batch takes a fresh
+ * stub from {@code stubs}, which carries the channel and the call deadline.
+ */
+class BillingRequestBatcher {
+  private record Pending(BillingRequest request, CompletableFuture<BillingResponse> result) {}
+
+  private final Supplier<BillingServiceGrpc.BillingServiceStub> stubs;
+  private final int maxBatchSize;
+  private final long windowMs;
+  private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+    Thread thread = new Thread(r, "billing-batcher");
+    thread.setDaemon(true);
+    return thread;
+  });
+
+  private List<Pending> pending = new ArrayList<>();
+  private ScheduledFuture<?> scheduledFlush;
+
+  BillingRequestBatcher(
+          Supplier<BillingServiceGrpc.BillingServiceStub> stubs,
+          int maxBatchSize,
+          long windowMs
+  ) {
+    this.stubs = stubs;
+    this.maxBatchSize = maxBatchSize;
+    this.windowMs = windowMs;
+  }
+
+  CompletableFuture<BillingResponse> submit(BillingRequest request) {
+    Pending entry = new Pending(request, new CompletableFuture<>());
+    List<Pending> full = null;
+    synchronized (this) {
+      pending.add(entry);
+      if (pending.size() >= maxBatchSize) {
+        full = drain();
+      } else if (pending.size() == 1) {
+        scheduledFlush = scheduler.schedule(this::flushWindow, windowMs, TimeUnit.MILLISECONDS);
+      }
+    }
+    if (full != null) {
+      send(full);
+    }
+    return entry.result();
+  }
+
+  private void flushWindow() {
+    List<Pending> batch;
+    synchronized (this) {
+      if (pending.isEmpty()) {
+        return;
+      }
+      batch = drain();
+    }
+    send(batch);
+  }
+
+  private List<Pending> drain() {
+    if (scheduledFlush != null) {
+      scheduledFlush.cancel(false);
+      scheduledFlush = null;
+    }
+    List<Pending> batch = pending;
+    pending = new ArrayList<>();
+    return batch;
+  }
+
+  private void send(List<Pending> batch) {
+    StreamObserver<BillingRequest> requests = stubs.get().createBillingAccounts(new StreamObserver<>() {
+      private int next;
+
+      @Override
+      public void onNext(BillingResponse response) {
+        // the server answers in request order
+        if (next < batch.size()) {
+          batch.get(next++).result().complete(response);
+        }
+      }
+
+      @Override
+      public void onError(Throwable t) {
+        batch.forEach(entry -> entry.result().completeExceptionally(t));
+      }
+
+      @Override
+      public void onCompleted() {
+        IllegalStateException missing = new IllegalStateException("Billing stream ended without a response");
+        batch.forEach(entry -> entry.result().completeExceptionally(missing));
+      }
+    });
+    for (Pending entry : batch) {
+      requests.onNext(entry.request());
+    }
+    requests.onCompleted();
+  }
+}
@@ -3,60 +3,119 @@ package com.pm.patientservice.grpc;
 import billing.BillingRequest;
 import billing.BillingResponse;
 import billing.BillingServiceGrpc;
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
 import com.pm.patientservice.kafka.kafkaProducer;
 import io.github.resilience4j.circuitbreaker.annotation.CircuitBreaker;
 import io.github.resilience4j.retry.annotation.Retry;
-import io.grpc.ManagedChannel;
-import io.grpc.ManagedChannelBuilder;
+import jakarta.annotation.PreDestroy;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Non-blocking billing client. Every call carries a deadline
+ * ({@code billing.grpc.deadline-ms}), so a slow billing-service fails the call
+ * with DEADLINE_EXCEEDED instead of holding a thread. The circuit breaker and
+ * retry decorate the returned future, and the fallback completes it with a
+ * PENDING response.
+ */
 @Service
 public class BillingServiceGrpcClient {
   private static final Logger log = LoggerFactory.getLogger(BillingServiceGrpcClient.class);
-  private final BillingServiceGrpc.BillingServiceBlockingStub blockingStub;
+  private final BillingChannelPool channelPool;
+  private final BillingRequestBatcher batcher;
+  private final long deadlineMs;
   private final kafkaProducer kafkaProducer;
 
   // localhost:9001/BillingService/CreatePatientAccount
   public BillingServiceGrpcClient(
           @Value("${billing.service.address:localhost}") String serverAddress,
           @Value("${billing.service.grpc.port:9001}") int serverPort,
+          @Value("${billing.grpc.channels:4}") int channels,
+          @Value("${billing.grpc.deadline-ms:2000}") long deadlineMs,
+          @Value("${billing.grpc.keepalive-time:30s}") Duration keepAliveTime,
+          @Value("${billing.grpc.keepalive-timeout:10s}") Duration keepAliveTimeout,
+          @Value("${billing.batch.enabled:true}") boolean batchEnabled,
+          @Value("${billing.batch.max-size:100}") int batchMaxSize,
+          @Value("${billing.batch.window-ms:2}") long batchWindowMs,
           kafkaProducer kafkaProducer) {
-    log.info("Connecting to Billing Service Grpc service at {}:{}", serverAddress, serverPort);
-    ManagedChannel channel = ManagedChannelBuilder.forAddress(serverAddress, serverPort)
-            .usePlaintext().build();
-
-    blockingStub = BillingServiceGrpc.newBlockingStub(channel);
+    log.info("Connecting to Billing Service Grpc service at {}:{} over {} channels",
+            serverAddress, serverPort, channels);
+    this.channelPool = new BillingChannelPool(
+            serverAddress, serverPort, channels, keepAliveTime, keepAliveTimeout);
+    this.deadlineMs = deadlineMs;
+    this.batcher = batchEnabled
+            ? new BillingRequestBatcher(
+                    () -> BillingServiceGrpc.newStub(channelPool.next())
+                            .withDeadlineAfter(deadlineMs, TimeUnit.MILLISECONDS),
+                    batchMaxSize,
+                    batchWindowMs)
+            : null;
     this.kafkaProducer = kafkaProducer;
   }
 
   @CircuitBreaker(name = "billingService", fallbackMethod = "billingFallback")
   @Retry(name = "billingRetry")
-  public BillingResponse createBillingAccount(String patientId, String name, String email) {
+  public CompletableFuture<BillingResponse> createBillingAccount(String patientId, String name, String email) {
     BillingRequest request = BillingRequest.newBuilder()
             .setPatientId(patientId)
             .setName(name)
             .setEmail(email)
             .build();
-    BillingResponse response = blockingStub.createBillingAccount(request);
-    log.info("Received response from billing service via GRPC: {}", response);
+    if (batcher != null) {
+      return batcher.submit(request);
+    }
 
-    return response;
+    CompletableFuture<BillingResponse> response = toCompletableFuture(
+            BillingServiceGrpc.newFutureStub(channelPool.next())
+                    .withDeadlineAfter(deadlineMs, TimeUnit.MILLISECONDS)
+                    .createBillingAccount(request));
+    return response.thenApply(result -> {
+      log.info("Received response from billing service via GRPC: {}", result);
+      return result;
+    });
   }
 
-  public BillingResponse billingFallback(String patientId, String name, String email, Throwable t) {
+  public CompletableFuture<BillingResponse> billingFallback(String patientId, String name, String email, Throwable t) {
     log.warn(
             "[CIRCUIT BREAKER] Billing Service is unavailable. Triggered fallback: {}", t.getMessage()
     );
 
     kafkaProducer.sendBillingAccountEvent(patientId, name, email);
 
-    return BillingResponse.newBuilder()
+    return CompletableFuture.completedFuture(BillingResponse.newBuilder()
             .setAccountId("")
             .setStatus("PENDING")
-            .build();
+            .build());
+
+  }
+
+  @PreDestroy
+  public void shutdown() throws InterruptedException {
+    channelPool.shutdown();
+  }
+
+  private static <T> CompletableFuture<T> toCompletableFuture(ListenableFuture<T> listenable) {
+    CompletableFuture<T> future = new CompletableFuture<>();
+    Futures.addCallback(listenable, new FutureCallback<>() {
+      @Override
+      public void onSuccess(T result) {
+        future.complete(result);
+      }
 
+      @Override
+      public void onFailure(Throwable t) {
+        future.completeExceptionally(t);
+      }
+    }, MoreExecutors.directExecutor());
+    return future;
   }
 }
@@ -0,0 +1,39 @@
+package com.pm.patientservice.kafka;
+
+import billing.events.BillingAccountEvent;
+import com.google.protobuf.InvalidProtocolBufferException;
+import com.pm.patientservice.service.PatientService;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.stereotype.Component;
+
+import java.util.UUID;
+
+/**
+ * Accounts billing-service created from the billing-account events this service
+ * emitted while it was unreachable. Each one resolves the patient's PENDING
+ * billing status; reports for deleted patients are dropped.
+ */
+@Component
+public class BillingStatusConsumer {
+  private static final Logger log = LoggerFactory.getLogger(BillingStatusConsumer.class);
+  private final PatientService patientService;
+
+  public BillingStatusConsumer(PatientService patientService) {
+    this.patientService = patientService;
+  }
+
+  @KafkaListener(topics = "billing-account-status", groupId = "patient-service")
+  public void consumeStatus(ConsumerRecord<String, byte[]> record) {
+    try {
+      BillingAccountEvent event = BillingAccountEvent.parseFrom(record.value());
+      patientService.recordBillingAccount(
+              UUID.fromString(event.getPatientId()), event.getStatus(), event.getAccountId());
+    } catch (InvalidProtocolBufferException | IllegalArgumentException e) {
+      log.error("Skipping billing status at {}-{}@{}: {}",
+              record.topic(), record.partition(), record.offset(), e.getMessage());
+    }
+  }
+}
@@ -0,0 +1,100 @@
+package com.pm.patientservice.kafka;
+
+import com.pm.patientservice.model.OutboxEvent;
+import com.pm.patientservice.repository.OutboxEventRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Publishes outbox rows to Kafka. Each batch is sent without waiting per record
+ * so the producer can fill its batches (linger.ms / batch.size), and rows are
+ * only deleted once every send in the batch is acknowledged. A failed batch
+ * stays in the table and is retried on the next run, so delivery is at least once.
+ */
+@Component
+public class OutboxRelay {
+  private static final Logger log = LoggerFactory.getLogger(OutboxRelay.class);
+
+  private final OutboxEventRepository outboxEventRepository;
+  private final KafkaTemplate<String, byte[]> kafkaTemplate;
+  private final TransactionTemplate transactionTemplate;
+  private final int batchSize;
+  private final long sendTimeoutMs;
+  private final AtomicLong backlog = new AtomicLong();
+  private final Timer deliveryLag;
+  private final Counter published;
+
+  public OutboxRelay(
+          OutboxEventRepository outboxEventRepository,
+          KafkaTemplate<String, byte[]> kafkaTemplate,
+          TransactionTemplate transactionTemplate,
+          MeterRegistry meterRegistry,
+          @Value("${outbox.relay.batch-size:500}") int batchSize,
+          @Value("${outbox.relay.send-timeout-ms:30000}") long sendTimeoutMs
+  ) {
+    this.outboxEventRepository = outboxEventRepository;
+    this.kafkaTemplate = kafkaTemplate;
+    this.transactionTemplate = transactionTemplate;
+    this.batchSize = batchSize;
+    this.sendTimeoutMs = sendTimeoutMs;
+    meterRegistry.gauge("custom.outbox.backlog", backlog);
+    this.deliveryLag = Timer.builder("custom.outbox.delivery.lag")
+            .description("Time from outbox insert to Kafka acknowledgement")
+            .publishPercentileHistogram()
+            .register(meterRegistry);
+    this.published = meterRegistry.counter("custom.outbox.published");
+  }
+
+  @Scheduled(fixedDelayString = "${outbox.relay.interval-ms:200}")
+  public void relay() {
+    try {
+      Integer sent;
+      do {
+        sent = transactionTemplate.execute(status -> publishBatch());
+      } while (sent != null && sent == batchSize);
+    } catch (RuntimeException e) {
+      log.warn("Outbox relay failed, will retry: {}", e.getMessage());
+    } finally {
+      backlog.set(outboxEventRepository.count());
+    }
+  }
+
+  private int publishBatch() {
+    List<OutboxEvent> batch = outboxEventRepository.findRelayBatch(PageRequest.of(0, batchSize));
+    if (batch.isEmpty()) {
+      return 0;
+    }
+
+    CompletableFuture<?>[] sends = batch.stream()
+            .map(event -> kafkaTemplate.send(event.getTopic(), event.getAggregateId(), event.getPayload()))
+            .toArray(CompletableFuture[]::new);
+    try {
+      CompletableFuture.allOf(sends).get(sendTimeoutMs, TimeUnit.MILLISECONDS);
+    } catch (Exception e) {
+      // rolls back the transaction, the rows are picked up again next run
+      throw new IllegalStateException("Kafka did not acknowledge outbox batch", e);
+    }
+
+    Instant now = Instant.now();
+    batch.forEach(event -> deliveryLag.record(Duration.between(event.getCreatedAt(), now)));
+    outboxEventRepository.deleteAllInBatch(batch);
+    published.increment(batch.size());
+    return batch.size();
+  }
+}
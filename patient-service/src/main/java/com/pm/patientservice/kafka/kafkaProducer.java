@@ -1,35 +1,66 @@
 package com.pm.patientservice.kafka;
 
 import billing.events.BillingAccountEvent;
+import com.pm.patientservice.model.OutboxEvent;
 import com.pm.patientservice.model.Patient;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
-import org.springframework.kafka.core.KafkaTemplate;
+import com.pm.patientservice.repository.JdbcBatchRepository;
+import com.pm.patientservice.repository.OutboxEventRepository;
 import org.springframework.stereotype.Service;
 import patient.events.PatientEvent;
 
+import java.util.List;
+
+/**
+ * Writes events to the outbox table; {@link OutboxRelay} publishes them to Kafka.
+ * Called inside a transaction, the event commits or rolls back with it.
+ */
 @Service
 public class kafkaProducer {
-  private static final Logger log = LoggerFactory.getLogger(kafkaProducer.class);
-  private final KafkaTemplate<String, byte[]> kafkaTemplate;
+  private final OutboxEventRepository outboxEventRepository;
+  private final JdbcBatchRepository jdbcBatchRepository;
 
-  public kafkaProducer(KafkaTemplate<String, byte[]> kafkaTemplate) {
-    this.kafkaTemplate = kafkaTemplate;
+  public kafkaProducer(
+          OutboxEventRepository outboxEventRepository,
+          JdbcBatchRepository jdbcBatchRepository
+  ) {
+    this.outboxEventRepository = outboxEventRepository;
+    this.jdbcBatchRepository = jdbcBatchRepository;
   }
 
   public void sendEvent(Patient patient) {
+    outboxEventRepository.save(patientEvent(patient, "PATIENT_CREATED", patient.getVersion()));
+  }
+
+  public void sendEvents(List<Patient> patients) {
+    jdbcBatchRepository.insertOutboxEvents(patients.stream()
+            .map(patient -> patientEvent(patient, "PATIENT_CREATED", patient.getVersion()))
+            .toList());
+  }
+
+  // the patient must be flushed so the event carries the bumped version
+  public void sendUpdatedEvent(Patient patient) {
+    outboxEventRepository.save(patientEvent(patient, "PATIENT_UPDATED", patient.getVersion()));
+  }
+
+  // the row is gone, so the tombstone takes the next version after its last state
+  public void sendDeletedEvent(Patient patient) {
+    outboxEventRepository.save(patientEvent(patient, "PATIENT_DELETED", patient.getVersion() + 1));
+  }
+
+  // keyed by patient id, so all versions of one patient land on one partition in order
+  private static OutboxEvent patientEvent(Patient patient, String eventType, long version) {
     PatientEvent event = PatientEvent.newBuilder()
             .setPatientId(patient.getId().toString())
             .setName(patient.getName())
             .setEmail(patient.getEmail())
-            .setEventType("PATIENT_CREATED")
+            .setAddress(patient.getAddress())
+            .setDateOfBirth(patient.getDateOfBirth().toString())
+            .setRegisteredDate(patient.getRegisteredDate().toString())
+            .setEventType(eventType)
+            .setVersion(version)
             .build();
 
-    try {
-      kafkaTemplate.send("patient", event.toByteArray());
-    }catch (Exception e){
-      log.error("Error sending PatientCreated event: {}", event);
-    }
+    return new OutboxEvent("patient", event.getPatientId(), event.toByteArray());
   }
 
   public void sendBillingAccountEvent(
@@ -42,10 +73,7 @@ public class kafkaProducer {
             .setEventType("BILLING_ACCOUNT_CREATE_REQUESTED")
             .build();
 
-    try {
-      kafkaTemplate.send("billing-account", event.toByteArray());
-    } catch (Exception e) {
-      log.error("Error sending BillingAccountCreated event: {}", e.getMessage());
-    }
+    outboxEventRepository.save(
+            new OutboxEvent("billing-account", patientId, event.toByteArray()));
   }
 }
@@ -1,8 +1,10 @@
 package com.pm.patientservice.mapper;
 
+import com.pm.patientservice.dto.BillingStatusResponseDTO;
 import com.pm.patientservice.dto.PatientRequestDTO;
 import com.pm.patientservice.dto.PatientResponseDTO;
 import com.pm.patientservice.model.Patient;
+import com.pm.patientservice.model.PatientBillingStatus;
 
 import java.time.LocalDate;
 
@@ -26,4 +28,13 @@ public class PatientMapper {
         patient.setRegisteredDate(LocalDate.parse(patientRequestDTO.getRegisteredDate()));
         return patient;
     }
+
+    public static BillingStatusResponseDTO toDto(PatientBillingStatus billingStatus) {
+        BillingStatusResponseDTO dto = new BillingStatusResponseDTO();
+        dto.setPatientId(billingStatus.getPatientId().toString());
+        dto.setStatus(billingStatus.getStatus());
+        dto.setAccountId(billingStatus.getAccountId());
+        dto.setUpdatedAt(billingStatus.getUpdatedAt().toString());
+        return dto;
+    }
 }
@@ -0,0 +1,55 @@
+package com.pm.patientservice.model;
+
+import jakarta.persistence.*;
+
+import java.time.Instant;
+
+@Entity
+@Table(name = "outbox_event")
+public class OutboxEvent {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false)
+    private String topic;
+
+    // Kafka record key
+    @Column(nullable = false)
+    private String aggregateId;
+
+    @Column(nullable = false, length = 1048576)
+    private byte[] payload;
+
+    @Column(nullable = false)
+    private Instant createdAt;
+
+    public OutboxEvent() {}
+
+    public OutboxEvent(String topic, String aggregateId, byte[] payload) {
+        this.topic = topic;
+        this.aggregateId = aggregateId;
+        this.payload = payload;
+        this.createdAt = Instant.now();
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getTopic() {
+        return topic;
+    }
+
+    public String getAggregateId() {
+        return aggregateId;
+    }
+
+    public byte[] getPayload() {
+        return payload;
+    }
+
+    public Instant getCreatedAt() {
+        return createdAt;
+    }
+}
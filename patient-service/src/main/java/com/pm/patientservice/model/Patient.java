@@ -27,6 +27,10 @@ public class Patient {
     @NotNull
     private LocalDate dateOfBirth;
 
+    // bumped by Hibernate on every update, carried on each PatientEvent
+    @Version
+    private long version;
+
     public LocalDate getRegisteredDate() {
         return registeredDate;
     }
@@ -75,6 +79,10 @@ public class Patient {
         this.id = id;
     }
 
+    public long getVersion() {
+        return version;
+    }
+
     @NotNull
     private LocalDate registeredDate;
 }
@@ -0,0 +1,62 @@
+package com.pm.patientservice.model;
+
+import jakarta.persistence.*;
+import jakarta.validation.constraints.NotNull;
+
+import java.time.Instant;
+import java.util.UUID;
+
+@Entity
+public class PatientBillingStatus {
+    @Id
+    private UUID patientId;
+
+    @NotNull
+    private String status;
+
+    private String accountId;
+
+    @NotNull
+    private Instant updatedAt;
+
+    public PatientBillingStatus() {}
+
+    public PatientBillingStatus(UUID patientId, String status, String accountId) {
+        this.patientId = patientId;
+        this.status = status;
+        this.accountId = accountId;
+        this.updatedAt = Instant.now();
+    }
+
+    public UUID getPatientId() {
+        return patientId;
+    }
+
+    public void setPatientId(UUID patientId) {
+        this.patientId = patientId;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public void setStatus(String status) {
+        this.status = status;
+    }
+
+    public String getAccountId() {
+        return accountId;
+    }
+
+    public void setAccountId(String accountId) {
+        this.accountId = accountId;
+    }
+
+    public Instant getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public void setUpdatedAt(Instant updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+}
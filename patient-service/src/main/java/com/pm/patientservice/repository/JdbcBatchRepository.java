@@ -0,0 +1,67 @@
+package com.pm.patientservice.repository;
+
+import com.pm.patientservice.model.OutboxEvent;
+import com.pm.patientservice.model.Patient;
+import com.pm.patientservice.model.PatientBillingStatus;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.util.List;
+
+/**
+ * Multi-row inserts for bulk import, sent as JDBC batches. Joins the surrounding
+ * JPA transaction. On PostgreSQL the driver collapses each batch into multi-value
+ * INSERTs when reWriteBatchedInserts=true is set on the datasource URL.
+ */
+@Repository
+public class JdbcBatchRepository {
+  private final JdbcTemplate jdbcTemplate;
+
+  public JdbcBatchRepository(JdbcTemplate jdbcTemplate) {
+    this.jdbcTemplate = jdbcTemplate;
+  }
+
+  // ids must already be assigned
+  public void insertPatients(List<Patient> patients) {
+    jdbcTemplate.batchUpdate(
+            "INSERT INTO patient (id, name, email, address, date_of_birth, registered_date, version) VALUES (?, ?, ?, ?, ?, ?, ?)",
+            patients,
+            patients.size(),
+            (ps, patient) -> {
+              ps.setObject(1, patient.getId());
+              ps.setString(2, patient.getName());
+              ps.setString(3, patient.getEmail());
+              ps.setString(4, patient.getAddress());
+              ps.setObject(5, patient.getDateOfBirth());
+              ps.setObject(6, patient.getRegisteredDate());
+              ps.setLong(7, patient.getVersion());
+            });
+  }
+
+  public void insertOutboxEvents(List<OutboxEvent> events) {
+    jdbcTemplate.batchUpdate(
+            "INSERT INTO outbox_event (topic, aggregate_id, payload, created_at) VALUES (?, ?, ?, ?)",
+            events,
+            events.size(),
+            (ps, event) -> {
+              ps.setString(1, event.getTopic());
+              ps.setString(2, event.getAggregateId());
+              ps.setBytes(3, event.getPayload());
+              ps.setTimestamp(4, Timestamp.from(event.getCreatedAt()));
+            });
+  }
+
+  public void insertBillingStatuses(List<PatientBillingStatus> statuses) {
+    jdbcTemplate.batchUpdate(
+            "INSERT INTO patient_billing_status (patient_id, status, account_id, updated_at) VALUES (?, ?, ?, ?)",
+            statuses,
+            statuses.size(),
+            (ps, status) -> {
+              ps.setObject(1, status.getPatientId());
+              ps.setString(2, status.getStatus());
+              ps.setString(3, status.getAccountId());
+              ps.setTimestamp(4, Timestamp.from(status.getUpdatedAt()));
+            });
+  }
+}
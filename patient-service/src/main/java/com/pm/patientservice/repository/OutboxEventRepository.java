@@ -0,0 +1,20 @@
+package com.pm.patientservice.repository;
+
+import com.pm.patientservice.model.OutboxEvent;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface OutboxEventRepository extends JpaRepository<OutboxEvent, Long> {
+  // FOR UPDATE (no SKIP LOCKED): relays on other instances wait instead of
+  // overtaking, which keeps events in insertion order on the topic
+  @Lock(LockModeType.PESSIMISTIC_WRITE)
+  @Query("select e from OutboxEvent e order by e.id")
+  List<OutboxEvent> findRelayBatch(Pageable pageable);
+}
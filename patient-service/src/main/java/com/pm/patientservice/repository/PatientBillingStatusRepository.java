@@ -0,0 +1,37 @@
+package com.pm.patientservice.repository;
+
+import com.pm.patientservice.model.PatientBillingStatus;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.UUID;
+
+@Repository
+public interface PatientBillingStatusRepository extends JpaRepository<PatientBillingStatus, UUID> {
+
+  /**
+   * Sets the status only while no account is known and the row exists, so a late
+   * PENDING or FAILED never replaces an account and the row of a deleted patient
+   * is not re-created.
+   *
+   * @return 1 if the row was updated
+   */
+  @Transactional
+  @Modifying(clearAutomatically = true)
+  @Query("""
+          UPDATE PatientBillingStatus s
+          SET s.status = :status, s.accountId = :accountId, s.updatedAt = :updatedAt
+          WHERE s.patientId = :patientId AND s.accountId IS NULL
+          """)
+  int updateIfUnresolved(
+          @Param("patientId") UUID patientId,
+          @Param("status") String status,
+          @Param("accountId") String accountId,
+          @Param("updatedAt") Instant updatedAt
+  );
+}
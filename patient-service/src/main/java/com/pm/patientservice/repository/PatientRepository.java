@@ -4,15 +4,37 @@ import com.pm.patientservice.model.Patient;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.UUID;
 
 @Repository
-public interface PatientRepository extends JpaRepository<Patient, UUID> {
+public interface PatientRepository extends JpaRepository<Patient, UUID>, JpaSpecificationExecutor<Patient> {
   boolean existsByEmail(String email);
 
   boolean existsByEmailAndIdNot(String email, UUID id);
 
-  Page<Patient> findByNameContainingIgnoreCase(String name, Pageable pageable);
+  // one IN (...) round trip per import chunk instead of existsByEmail per row
+  @Query("select p.email from Patient p where p.email in :emails")
+  List<String> findExistingEmails(@Param("emails") Collection<String> emails);
+
+  // lower(name) matches the pg_trgm expression index in data-postgresql.sql
+  @Query("select p from Patient p where lower(p.name) like :pattern escape '\\'")
+  Page<Patient> searchByName(@Param("pattern") String pattern, Pageable pageable);
+
+  Page<Patient> findByIdIn(Collection<UUID> ids, Pageable pageable);
+
+  @Query("select p.id as id, p.name as name from Patient p")
+  List<PatientName> findAllNames();
+
+  interface PatientName {
+    UUID getId();
+
+    String getName();
+  }
 }
@@ -0,0 +1,32 @@
+package com.pm.patientservice.repository;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+/**
+ * Modification counters per table, incremented in the same transaction as each
+ * write so readers can tell from one primary key lookup whether anything
+ * changed. The increment locks the counter row, so writes to the same table
+ * queue on it until they commit.
+ */
+@Repository
+public class TableVersionRepository {
+  public static final String PATIENT = "patient";
+
+  private final JdbcTemplate jdbcTemplate;
+
+  public TableVersionRepository(JdbcTemplate jdbcTemplate) {
+    this.jdbcTemplate = jdbcTemplate;
+  }
+
+  public long current(String table) {
+    Long version = jdbcTemplate.queryForObject(
+            "SELECT version FROM table_version WHERE table_name = ?", Long.class, table);
+    return version != null ? version : 0;
+  }
+
+  // must run inside the writing transaction
+  public void increment(String table) {
+    jdbcTemplate.update("UPDATE table_version SET version = version + 1 WHERE table_name = ?", table);
+  }
+}
@@ -0,0 +1,119 @@
+package com.pm.patientservice.search;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * In-memory trigram index over patient names, the same idea as pg_trgm. A
+ * substring query only verifies the ids posted under its rarest trigram
+ * instead of scanning every name. Names are kept as stored too, so matches can
+ * be ordered by name without going to the database.
+ */
+class PatientNameIndex {
+  private static final int GRAM = 3;
+
+  private record Name(String stored, String normalized) {}
+
+  private final Map<String, Set<UUID>> postings = new ConcurrentHashMap<>();
+  private final Map<UUID, Name> names = new ConcurrentHashMap<>();
+
+  synchronized void put(UUID id, String name) {
+    remove(id);
+    String normalized = normalize(name);
+    names.put(id, new Name(name == null ? "" : name, normalized));
+    for (String gram : trigrams(normalized)) {
+      postings.computeIfAbsent(gram, g -> ConcurrentHashMap.newKeySet()).add(id);
+    }
+  }
+
+  synchronized void remove(UUID id) {
+    Name previous = names.remove(id);
+    if (previous == null) {
+      return;
+    }
+    for (String gram : trigrams(previous.normalized())) {
+      Set<UUID> ids = postings.get(gram);
+      if (ids != null) {
+        ids.remove(id);
+        if (ids.isEmpty()) {
+          postings.remove(gram);
+        }
+      }
+    }
+  }
+
+  /** Ids of all patients whose name contains {@code query}, ignoring case. */
+  Set<UUID> search(String query) {
+    String normalized = normalize(query);
+    if (normalized.length() < GRAM) {
+      return names.entrySet().stream()
+              .filter(entry -> entry.getValue().normalized().contains(normalized))
+              .map(Map.Entry::getKey)
+              .collect(Collectors.toSet());
+    }
+    Set<UUID> candidates = null;
+    for (String gram : trigrams(normalized)) {
+      Set<UUID> ids = postings.get(gram);
+      if (ids == null) {
+        return Set.of();
+      }
+      if (candidates == null || ids.size() < candidates.size()) {
+        candidates = ids;
+      }
+    }
+    Set<UUID> result = new HashSet<>();
+    for (UUID id : candidates) {
+      Name name = names.get(id);
+      if (name != null && name.normalized().contains(normalized)) {
+        result.add(id);
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Like {@link #search}, ordered by the stored name and then by id. Compares
+   * like Java strings, which matches H2's default collation but not
+   * necessarily PostgreSQL's.
+   */
+  List<UUID> searchSortedByName(String query, boolean descending) {
+    // names may change while sorting, so sort a snapshot
+    List<Map.Entry<UUID, String>> matches = new ArrayList<>();
+    for (UUID id : search(query)) {
+      Name name = names.get(id);
+      if (name != null) {
+        matches.add(Map.entry(id, name.stored()));
+      }
+    }
+    Comparator<Map.Entry<UUID, String>> order = Map.Entry.comparingByValue();
+    if (descending) {
+      order = order.reversed();
+    }
+    matches.sort(order.thenComparing(Map.Entry.comparingByKey()));
+    return matches.stream().map(Map.Entry::getKey).toList();
+  }
+
+  int size() {
+    return names.size();
+  }
+
+  private static String normalize(String value) {
+    return value == null ? "" : value.toLowerCase(Locale.ROOT);
+  }
+
+  private static Set<String> trigrams(String value) {
+    Set<String> grams = new HashSet<>();
+    for (int i = 0; i + GRAM <= value.length(); i++) {
+      grams.add(value.substring(i, i + GRAM));
+    }
+    return grams;
+  }
+}
@@ -0,0 +1,128 @@
+package com.pm.patientservice.search;
+
+import com.pm.patientservice.model.Patient;
+import com.pm.patientservice.repository.PatientRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Name search. With {@code patient.search.engine=database} the query is a
+ * {@code lower(name) like} that PostgreSQL answers from the pg_trgm index in
+ * data-postgresql.sql. With {@code memory} (H2, tests, local runs) an in-process
+ * trigram index picks the matching ids. Sorted by name, the index also orders
+ * and pages them, so the database only loads the ids on the page. Other sorts
+ * pass the ids to an {@code IN} query, up to {@code patient.search.max-ids};
+ * past that the database filters by name itself. The memory index is per
+ * instance and only sees writes made through this instance.
+ */
+@Service
+public class PatientSearchService {
+  private static final Logger log = LoggerFactory.getLogger(PatientSearchService.class);
+
+  public enum Engine { DATABASE, MEMORY }
+
+  private final PatientRepository patientRepository;
+  private final Engine engine;
+  private final int maxIds;
+  private final Timer searchTimer;
+  private final PatientNameIndex nameIndex = new PatientNameIndex();
+
+  public PatientSearchService(
+          PatientRepository patientRepository,
+          @Value("${patient.search.engine:MEMORY}") Engine engine,
+          @Value("${patient.search.max-ids:1000}") int maxIds,
+          MeterRegistry meterRegistry
+  ) {
+    this.patientRepository = patientRepository;
+    this.engine = engine;
+    this.maxIds = maxIds;
+    this.searchTimer = meterRegistry.timer("custom.patients.search", "engine", engine.name().toLowerCase());
+  }
+
+  public Engine getEngine() {
+    return engine;
+  }
+
+  @EventListener(ApplicationReadyEvent.class)
+  public void buildIndex() {
+    if (engine != Engine.MEMORY) {
+      return;
+    }
+    patientRepository.findAllNames().forEach(p -> nameIndex.put(p.getId(), p.getName()));
+    log.info("Built in-memory patient name index with {} entries", nameIndex.size());
+  }
+
+  public Page<Patient> search(String searchValue, Pageable pageable) {
+    return searchTimer.record(() -> {
+      if (engine == Engine.DATABASE) {
+        return patientRepository.searchByName(likePattern(searchValue), pageable);
+      }
+      Sort sort = pageable.getSort();
+      Sort.Order byName = sort.getOrderFor("name");
+      if (sort.isUnsorted() || (byName != null && sort.stream().count() == 1)) {
+        return pageSortedByName(
+                nameIndex.searchSortedByName(searchValue, byName != null && byName.isDescending()), pageable);
+      }
+      Set<UUID> ids = nameIndex.search(searchValue);
+      if (ids.isEmpty()) {
+        return Page.empty(pageable);
+      }
+      if (ids.size() > maxIds) {
+        // too many to bind as parameters
+        return patientRepository.searchByName(likePattern(searchValue), pageable);
+      }
+      return patientRepository.findByIdIn(ids, pageable);
+    });
+  }
+
+  private Page<Patient> pageSortedByName(List<UUID> ids, Pageable pageable) {
+    int from = (int) Math.min(pageable.getOffset(), ids.size());
+    List<UUID> pageIds = ids.subList(from, Math.min(from + pageable.getPageSize(), ids.size()));
+    if (pageIds.isEmpty()) {
+      return new PageImpl<>(List.of(), pageable, ids.size());
+    }
+    Map<UUID, Patient> loaded = patientRepository.findAllById(pageIds).stream()
+            .collect(Collectors.toMap(Patient::getId, Function.identity()));
+    List<Patient> content = pageIds.stream().map(loaded::get).filter(Objects::nonNull).toList();
+    return new PageImpl<>(content, pageable, ids.size());
+  }
+
+  public void indexPatient(Patient patient) {
+    if (engine == Engine.MEMORY) {
+      nameIndex.put(patient.getId(), patient.getName());
+    }
+  }
+
+  public void removePatient(UUID id) {
+    if (engine == Engine.MEMORY) {
+      nameIndex.remove(id);
+    }
+  }
+
+  /** A contains-pattern for {@code lower(name) like ... escape '\'}, wildcards in the value match literally. */
+  public static String likePattern(String searchValue) {
+    String escaped = searchValue.toLowerCase()
+            .replace("\\", "\\\\")
+            .replace("%", "\\%")
+            .replace("_", "\\_");
+    return "%" + escaped + "%";
+  }
+}
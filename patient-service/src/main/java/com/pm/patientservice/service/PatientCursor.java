@@ -0,0 +1,62 @@
+package com.pm.patientservice.service;
+
+import com.pm.patientservice.exception.InvalidCursorException;
+import org.springframework.data.domain.KeysetScrollPosition;
+import org.springframework.data.domain.ScrollPosition;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Encodes a keyset position on (sortField, id) as an opaque URL-safe string.
+ * The cursor is bound to the sort field it was issued for.
+ */
+final class PatientCursor {
+  static final Set<String> SORT_FIELDS = Set.of("name", "email", "address", "dateOfBirth", "registeredDate");
+  private static final Set<String> DATE_FIELDS = Set.of("dateOfBirth", "registeredDate");
+  private static final char SEPARATOR = '\n';
+
+  private PatientCursor() {}
+
+  static void requireSortable(String sortField) {
+    if (!SORT_FIELDS.contains(sortField)) {
+      throw new InvalidCursorException("Cannot page by cursor on field: " + sortField);
+    }
+  }
+
+  static String encode(KeysetScrollPosition position, String sortField) {
+    Map<String, ?> keys = position.getKeys();
+    String raw = sortField + SEPARATOR + keys.get(sortField) + SEPARATOR + keys.get("id");
+    return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+  }
+
+  static ScrollPosition decode(String cursor, String sortField) {
+    String raw;
+    try {
+      raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+    } catch (IllegalArgumentException e) {
+      throw new InvalidCursorException("Malformed cursor");
+    }
+    // the sort value itself may contain the separator, the field name and id never do
+    int first = raw.indexOf(SEPARATOR);
+    int last = raw.lastIndexOf(SEPARATOR);
+    if (first < 0 || first == last || !raw.substring(0, first).equals(sortField)) {
+      throw new InvalidCursorException("Cursor was not issued for sortField " + sortField);
+    }
+    String value = raw.substring(first + 1, last);
+    try {
+      Map<String, Object> keys = new LinkedHashMap<>();
+      keys.put(sortField, DATE_FIELDS.contains(sortField) ? LocalDate.parse(value) : value);
+      keys.put("id", UUID.fromString(raw.substring(last + 1)));
+      return ScrollPosition.forward(keys);
+    } catch (DateTimeParseException | IllegalArgumentException e) {
+      throw new InvalidCursorException("Malformed cursor");
+    }
+  }
+}
@@ -0,0 +1,333 @@
+package com.pm.patientservice.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.pm.patientservice.cache.TwoLevelCacheManager;
+import com.pm.patientservice.dto.PatientImportErrorDTO;
+import com.pm.patientservice.dto.PatientImportProgressDTO;
+import com.pm.patientservice.dto.PatientRequestDTO;
+import com.pm.patientservice.dto.validators.CreatePatientValidationGroup;
+import com.pm.patientservice.exception.InvalidImportException;
+import com.pm.patientservice.grpc.BillingServiceGrpcClient;
+import com.pm.patientservice.kafka.kafkaProducer;
+import com.pm.patientservice.mapper.PatientMapper;
+import com.pm.patientservice.model.Patient;
+import com.pm.patientservice.model.PatientBillingStatus;
+import com.pm.patientservice.repository.JdbcBatchRepository;
+import com.pm.patientservice.repository.PatientRepository;
+import com.pm.patientservice.repository.TableVersionRepository;
+import com.pm.patientservice.search.PatientSearchService;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import jakarta.validation.groups.Default;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.Cache;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+/**
+ * Bulk import from NDJSON or CSV. The input is read line by line and handled in
+ * chunks of {@code patient.import.chunk-size} rows, so only one chunk is held in
+ * memory. Per chunk: one {@code IN (...)} query for existing emails, one
+ * transaction with JDBC batch inserts for the patients and their outbox events,
+ * then billing accounts for the whole chunk at once (the billing client
+ * coalesces them into streaming calls). Cached patient pages are dropped after
+ * every committed chunk, so a failed import leaves no stale pages behind.
+ */
+@Service
+public class PatientImportService {
+  private static final Logger log = LoggerFactory.getLogger(PatientImportService.class);
+
+  public enum Format { NDJSON, CSV }
+
+  private static final List<String> CSV_COLUMNS =
+          List.of("name", "email", "address", "dateOfBirth", "registeredDate");
+
+  private record Row(long line, PatientRequestDTO request) {}
+
+  private record Candidate(long line, Patient patient) {}
+
+  private record CsvHeader(Map<String, Integer> columns, int width) {}
+
+  private final PatientRepository patientRepository;
+  private final JdbcBatchRepository jdbcBatchRepository;
+  private final BillingServiceGrpcClient billingServiceGrpcClient;
+  private final kafkaProducer kafkaProducer;
+  private final PatientSearchService patientSearchService;
+  private final TransactionTemplate transactionTemplate;
+  private final TableVersionRepository tableVersionRepository;
+  private final TwoLevelCacheManager cacheManager;
+  private final Validator validator;
+  private final ObjectMapper objectMapper;
+  private final int chunkSize;
+
+  public PatientImportService(
+          PatientRepository patientRepository,
+          JdbcBatchRepository jdbcBatchRepository,
+          BillingServiceGrpcClient billingServiceGrpcClient,
+          kafkaProducer kafkaProducer,
+          PatientSearchService patientSearchService,
+          TransactionTemplate transactionTemplate,
+          TableVersionRepository tableVersionRepository,
+          TwoLevelCacheManager cacheManager,
+          Validator validator,
+          ObjectMapper objectMapper,
+          @Value("${patient.import.chunk-size:500}") int chunkSize
+  ) {
+    this.patientRepository = patientRepository;
+    this.jdbcBatchRepository = jdbcBatchRepository;
+    this.billingServiceGrpcClient = billingServiceGrpcClient;
+    this.kafkaProducer = kafkaProducer;
+    this.patientSearchService = patientSearchService;
+    this.transactionTemplate = transactionTemplate;
+    this.tableVersionRepository = tableVersionRepository;
+    this.cacheManager = cacheManager;
+    this.validator = validator;
+    this.objectMapper = objectMapper;
+    this.chunkSize = chunkSize;
+  }
+
+  /**
+   * Imports every row of {@code input}, calling {@code progress} after each chunk
+   * and once more with {@code done=true} at the end. Invalid rows are reported
+   * and skipped; they never fail the rest of the import.
+   */
+  public void importPatients(
+          Reader input,
+          Format format,
+          Consumer<PatientImportProgressDTO> progress
+  ) throws IOException {
+    BufferedReader reader = new BufferedReader(input);
+    CsvHeader csvHeader = null;
+    List<Row> rows = new ArrayList<>(chunkSize);
+    List<PatientImportErrorDTO> errors = new ArrayList<>();
+    long line = 0;
+    long rowsRead = 0;
+    long imported = 0;
+    long failed = 0;
+    int pending = 0;
+
+    String text;
+    while ((text = reader.readLine()) != null) {
+      line++;
+      if (text.isBlank()) {
+        continue;
+      }
+      if (format == Format.CSV && csvHeader == null) {
+        csvHeader = csvHeader(text);
+        continue;
+      }
+      rowsRead++;
+      pending++;
+      try {
+        PatientRequestDTO request = format == Format.CSV
+                ? fromCsv(csvHeader, text)
+                : objectMapper.readValue(text, PatientRequestDTO.class);
+        if (request == null) {
+          // a bare JSON null
+          errors.add(new PatientImportErrorDTO(line, null, "Expected a JSON object"));
+        } else {
+          rows.add(new Row(line, request));
+        }
+      } catch (JsonProcessingException e) {
+        errors.add(new PatientImportErrorDTO(line, null, "Malformed JSON: " + e.getOriginalMessage()));
+      } catch (IllegalArgumentException e) {
+        errors.add(new PatientImportErrorDTO(line, null, e.getMessage()));
+      }
+
+      if (pending >= chunkSize) {
+        imported += importChunk(rows, errors);
+        failed += errors.size();
+        progress.accept(new PatientImportProgressDTO(rowsRead, imported, failed, false, errors));
+        rows = new ArrayList<>(chunkSize);
+        errors = new ArrayList<>();
+        pending = 0;
+      }
+    }
+
+    if (pending > 0) {
+      imported += importChunk(rows, errors);
+      failed += errors.size();
+      progress.accept(new PatientImportProgressDTO(rowsRead, imported, failed, false, errors));
+    }
+    log.info("Patient import finished: {} rows, {} imported, {} failed", rowsRead, imported, failed);
+    progress.accept(new PatientImportProgressDTO(rowsRead, imported, failed, true, List.of()));
+  }
+
+  private int importChunk(List<Row> rows, List<PatientImportErrorDTO> errors) {
+    List<Candidate> candidates = new ArrayList<>(rows.size());
+    Set<String> emails = new HashSet<>();
+    for (Row row : rows) {
+      PatientRequestDTO request = row.request();
+      String problem = validate(request);
+      if (problem == null && !emails.add(request.getEmail())) {
+        problem = "Duplicate email within import";
+      }
+      if (problem == null) {
+        try {
+          Patient patient = PatientMapper.toModel(request);
+          patient.setId(UUID.randomUUID());
+          candidates.add(new Candidate(row.line(), patient));
+        } catch (DateTimeParseException e) {
+          problem = "Invalid date: " + e.getParsedString();
+        }
+      }
+      if (problem != null) {
+        errors.add(new PatientImportErrorDTO(row.line(), request.getEmail(), problem));
+      }
+    }
+    if (candidates.isEmpty()) {
+      return 0;
+    }
+
+    Set<String> existing = new HashSet<>(patientRepository.findExistingEmails(emails));
+    List<Patient> patients = new ArrayList<>(candidates.size());
+    for (Candidate candidate : candidates) {
+      String email = candidate.patient().getEmail();
+      if (existing.contains(email)) {
+        errors.add(new PatientImportErrorDTO(candidate.line(), email, "A patient with this email already exists"));
+      } else {
+        patients.add(candidate.patient());
+      }
+    }
+    if (patients.isEmpty()) {
+      return 0;
+    }
+
+    try {
+      transactionTemplate.executeWithoutResult(status -> {
+        jdbcBatchRepository.insertPatients(patients);
+        tableVersionRepository.increment(TableVersionRepository.PATIENT);
+        kafkaProducer.sendEvents(patients);
+      });
+    } catch (DataAccessException e) {
+      // e.g. a concurrent create took one of the emails after the IN check
+      String message = "Chunk rolled back: " + e.getMostSpecificCause().getMessage();
+      candidates.stream()
+              .filter(candidate -> !existing.contains(candidate.patient().getEmail()))
+              .forEach(candidate -> errors.add(
+                      new PatientImportErrorDTO(candidate.line(), candidate.patient().getEmail(), message)));
+      return 0;
+    }
+
+    patients.forEach(patientSearchService::indexPatient);
+    evictPatientPages();
+    provisionBilling(patients);
+    return patients.size();
+  }
+
+  // same caches createPatient evicts; a Redis failure only leaves pages to their TTL
+  private void evictPatientPages() {
+    for (String name : List.of("patients", "patientSearch")) {
+      try {
+        cacheManager.getCache(name).clear();
+      } catch (RuntimeException e) {
+        log.warn("Cache '{}' failed to clear after import chunk: {}", name, e.getMessage());
+      }
+    }
+  }
+
+  private void provisionBilling(List<Patient> patients) {
+    List<CompletableFuture<PatientBillingStatus>> calls = patients.stream()
+            .map(patient -> billingServiceGrpcClient
+                    .createBillingAccount(patient.getId().toString(), patient.getName(), patient.getEmail())
+                    .thenApply(response -> new PatientBillingStatus(
+                            patient.getId(),
+                            response.getStatus(),
+                            response.getAccountId().isEmpty() ? null : response.getAccountId()
+                    ))
+                    .exceptionally(ex -> new PatientBillingStatus(patient.getId(), "FAILED", null)))
+            .toList();
+    jdbcBatchRepository.insertBillingStatuses(calls.stream().map(CompletableFuture::join).toList());
+  }
+
+  private String validate(PatientRequestDTO request) {
+    Set<ConstraintViolation<PatientRequestDTO>> violations =
+            validator.validate(request, Default.class, CreatePatientValidationGroup.class);
+    if (violations.isEmpty()) {
+      return null;
+    }
+    return violations.stream()
+            .map(ConstraintViolation::getMessage)
+            .sorted()
+            .collect(Collectors.joining("; "));
+  }
+
+  private static CsvHeader csvHeader(String text) {
+    List<String> header = parseCsvLine(text);
+    Map<String, Integer> columns = new HashMap<>();
+    for (int i = 0; i < header.size(); i++) {
+      columns.put(header.get(i).trim(), i);
+    }
+    List<String> missing = CSV_COLUMNS.stream().filter(c -> !columns.containsKey(c)).toList();
+    if (!missing.isEmpty()) {
+      throw new InvalidImportException("CSV header is missing columns: " + String.join(", ", missing));
+    }
+    return new CsvHeader(columns, header.size());
+  }
+
+  private static PatientRequestDTO fromCsv(CsvHeader header, String text) {
+    List<String> values = parseCsvLine(text);
+    if (values.size() != header.width()) {
+      throw new IllegalArgumentException("Expected " + header.width() + " columns but found " + values.size());
+    }
+    Map<String, Integer> columns = header.columns();
+    PatientRequestDTO request = new PatientRequestDTO();
+    request.setName(values.get(columns.get("name")));
+    request.setEmail(values.get(columns.get("email")));
+    request.setAddress(values.get(columns.get("address")));
+    request.setDateOfBirth(values.get(columns.get("dateOfBirth")));
+    request.setRegisteredDate(values.get(columns.get("registeredDate")));
+    return request;
+  }
+
+  // RFC 4180 fields on a single line: quoted fields may contain commas and "" escapes
+  private static List<String> parseCsvLine(String text) {
+    List<String> values = new ArrayList<>();
+    StringBuilder field = new StringBuilder();
+    boolean quoted = false;
+    for (int i = 0; i < text.length(); i++) {
+      char c = text.charAt(i);
+      if (quoted) {
+        if (c == '"' && i + 1 < text.length() && text.charAt(i + 1) == '"') {
+          field.append('"');
+          i++;
+        } else if (c == '"') {
+          quoted = false;
+        } else {
+          field.append(c);
+        }
+      } else if (c == '"') {
+        quoted = true;
+      } else if (c == ',') {
+        values.add(field.toString());
+        field.setLength(0);
+      } else {
+        field.append(c);
+      }
+    }
+    if (quoted) {
+      throw new IllegalArgumentException("Unterminated quoted field");
+    }
+    values.add(field.toString());
+    return values;
+  }
+}
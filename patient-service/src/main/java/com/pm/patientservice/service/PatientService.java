@@ -1,5 +1,10 @@
 package com.pm.patientservice.service;
 
+import billing.BillingResponse;
+import com.pm.patientservice.cache.TwoLevelCache;
+import com.pm.patientservice.cache.TwoLevelCacheManager;
+import com.pm.patientservice.dto.BillingStatusResponseDTO;
+import com.pm.patientservice.dto.CursorPagedPatientResponseDto;
 import com.pm.patientservice.dto.PagedPatientResponseDto;
 import com.pm.patientservice.dto.PatientRequestDTO;
 import com.pm.patientservice.dto.PatientResponseDTO;
@@ -9,20 +14,39 @@ import com.pm.patientservice.grpc.BillingServiceGrpcClient;
 import com.pm.patientservice.kafka.kafkaProducer;
 import com.pm.patientservice.mapper.PatientMapper;
 import com.pm.patientservice.model.Patient;
+import com.pm.patientservice.model.PatientBillingStatus;
+import com.pm.patientservice.repository.PatientBillingStatusRepository;
 import com.pm.patientservice.repository.PatientRepository;
+import com.pm.patientservice.repository.TableVersionRepository;
+import com.pm.patientservice.search.PatientSearchService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.cache.annotation.CacheEvict;
 import org.springframework.cache.annotation.Cacheable;
+import org.springframework.cache.annotation.Caching;
+import org.springframework.data.domain.KeysetScrollPosition;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.ScrollPosition;
 import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.time.Instant;
 import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
 
 @Service
 public class PatientService {
@@ -30,23 +54,72 @@ public class PatientService {
   private final PatientRepository patientRepository;
   private final BillingServiceGrpcClient billingServiceGrpcClient;
   private final kafkaProducer kafkaProducer;
+  private final PatientSearchService patientSearchService;
+  private final PatientBillingStatusRepository billingStatusRepository;
+  private final ExecutorService pipelineExecutor;
+  private final TransactionTemplate transactionTemplate;
+  private final TableVersionRepository tableVersionRepository;
+  private final TwoLevelCacheManager cacheManager;
 
   public PatientService(
           PatientRepository patientRepository,
           BillingServiceGrpcClient billingServiceGrpcClient,
-          kafkaProducer kafkaProducer
+          kafkaProducer kafkaProducer,
+          PatientSearchService patientSearchService,
+          PatientBillingStatusRepository billingStatusRepository,
+          @Qualifier("patientPipelineExecutor") ExecutorService pipelineExecutor,
+          TransactionTemplate transactionTemplate,
+          TableVersionRepository tableVersionRepository,
+          TwoLevelCacheManager cacheManager
   ) {
     this.patientRepository = patientRepository;
     this.billingServiceGrpcClient = billingServiceGrpcClient;
     this.kafkaProducer = kafkaProducer;
+    this.patientSearchService = patientSearchService;
+    this.billingStatusRepository = billingStatusRepository;
+    this.pipelineExecutor = pipelineExecutor;
+    this.transactionTemplate = transactionTemplate;
+    this.tableVersionRepository = tableVersionRepository;
+    this.cacheManager = cacheManager;
   }
 
-  @Cacheable(
-          value = "patients",
-          key = "#page + '-' + #size + '-' +  #sort + '-' + #sortField",
-          condition = "#searchValue == ''"
-  )
+  /** Changes with every committed patient write, see {@link TableVersionRepository}. */
+  public long getPatientsVersion() {
+    return tableVersionRepository.current(TableVersionRepository.PATIENT);
+  }
+
+  /**
+   * Whether {@link #getPatients} results only change with the patient version.
+   * The in-memory name index is updated after the commit and per instance, so
+   * its search results are not.
+   */
+  public boolean isVersioned(String searchValue) {
+    return searchValue == null || searchValue.isBlank()
+            || patientSearchService.getEngine() == PatientSearchService.Engine.DATABASE;
+  }
+
+  /**
+   * One page of patients as of {@code version}, which the caller reads once from
+   * {@link #getPatientsVersion()} before calling. Keys start with it and Spring
+   * evaluates the key again for the put, so it must be an argument: a reader that
+   * loaded its rows before a write puts its page back under the old version's key,
+   * which no later read looks up.
+   */
+  @Caching(cacheable = {
+          @Cacheable(
+                  value = "patients",
+                  key = "#version + '-' + #page + '-' + #size + '-' +  #sort + '-' + #sortField",
+                  condition = "#searchValue == ''"
+          ),
+          // short TTL (cache.redis.search-ttl), popular terms are served from here
+          @Cacheable(
+                  value = "patientSearch",
+                  key = "#version + '-' + #searchValue.toLowerCase() + '-' + #page + '-' + #size + '-' +  #sort + '-' + #sortField",
+                  condition = "#searchValue != ''"
+          )
+  })
   public PagedPatientResponseDto getPatients (
+          long version,
           int page,
           int size,
           String sort,
@@ -54,11 +127,6 @@ public class PatientService {
           String searchValue
   ) {
     log.info("[REDIS]: cache miss - fetching from db");
-    try {
-      Thread.sleep(2000);
-    } catch (InterruptedException e) {
-      log.error(e.getMessage());
-    }
     Pageable pageable = PageRequest.of(
             page-1,
             size,
@@ -72,7 +140,7 @@ public class PatientService {
     if (searchValue == null || searchValue.isBlank()) {
       patientPage = patientRepository.findAll(pageable);
     } else {
-      patientPage = patientRepository.findByNameContainingIgnoreCase(searchValue, pageable);
+      patientPage = patientSearchService.search(searchValue, pageable);
     }
 
     List<PatientResponseDTO> patientResponseDtos = patientPage.getContent()
@@ -80,55 +148,242 @@ public class PatientService {
             .map(PatientMapper::toDto)
             .toList();
 
-    return new PagedPatientResponseDto(
+    PagedPatientResponseDto response = new PagedPatientResponseDto(
             patientResponseDtos,
             patientPage.getNumber() + 1,
             patientPage.getSize(),
             patientPage.getTotalPages(),
             (int) patientPage.getTotalElements()
     );
+    response.setVersion(version);
+    return response;
   }
 
-  public PatientResponseDTO createPatient (PatientRequestDTO patientRequestDTO) {
-    if (patientRepository.existsByEmail(patientRequestDTO.getEmail())) {
-      throw new EmailAlreadyExistsException("A patient with this email already exists" +
-              patientRequestDTO.getEmail());
+  @Cacheable(value = "patient", key = "#id.toString()")
+  public PatientResponseDTO getPatient (UUID id) {
+    return patientRepository.findById(id)
+            .map(PatientMapper::toDto)
+            .orElseThrow(() -> new PatientNotFoundException("Patient not find with ID: " + id));
+  }
+
+  /**
+   * The patients with the given ids in request order, unknown ids skipped.
+   * Shares the {@code patient} cache with {@link #getPatient(UUID)}: hits come
+   * from L1 and one Redis MGET, misses from one IN query.
+   */
+  public List<PatientResponseDTO> getPatientsByIds (List<UUID> ids) {
+    Set<String> keys = new LinkedHashSet<>();
+    ids.forEach(id -> keys.add(id.toString()));
+    TwoLevelCache cache = (TwoLevelCache) cacheManager.getCache("patient");
+    Map<Object, Object> found = cache.getAll(keys);
+
+    List<UUID> missing = keys.stream()
+            .filter(key -> !found.containsKey(key))
+            .map(UUID::fromString)
+            .toList();
+    if (!missing.isEmpty()) {
+      for (Patient patient : patientRepository.findAllById(missing)) {
+        PatientResponseDTO dto = PatientMapper.toDto(patient);
+        found.put(dto.getId(), dto);
+        try {
+          cache.put(dto.getId(), dto);
+        } catch (RuntimeException e) {
+          log.warn("Cache 'patient' failed to put entry with key '{}': {}", dto.getId(), e.getMessage());
+        }
+      }
     }
 
-    Patient newPatient = patientRepository.save(PatientMapper.toModel(patientRequestDTO));
+    return keys.stream()
+            .map(key -> (PatientResponseDTO) found.get(key))
+            .filter(Objects::nonNull)
+            .toList();
+  }
+
+  /**
+   * Keyset (seek) pagination on (sortField, id): each page is a bounded index
+   * range scan instead of OFFSET, and count(*) only runs when includeTotal is set.
+   */
+  public CursorPagedPatientResponseDto getPatientsByCursor(
+          String cursor,
+          int size,
+          String sort,
+          String sortField,
+          String searchValue,
+          boolean includeTotal
+  ) {
+    PatientCursor.requireSortable(sortField);
+    ScrollPosition position = cursor == null || cursor.isBlank()
+            ? ScrollPosition.keyset()
+            : PatientCursor.decode(cursor, sortField);
+    Sort order = sort.equalsIgnoreCase("desc")
+            ? Sort.by(sortField).descending()
+            : Sort.by(sortField).ascending();
+    Specification<Patient> filter = nameContains(searchValue);
+
+    Window<Patient> window = patientRepository.findBy(
+            filter,
+            query -> query.sortBy(order).limit(size).scroll(position)
+    );
+
+    String nextCursor = window.hasNext() && !window.isEmpty()
+            ? PatientCursor.encode(
+                    (KeysetScrollPosition) window.positionAt(window.size() - 1), sortField)
+            : null;
 
-    billingServiceGrpcClient.createBillingAccount(
-            newPatient.getId().toString(),
-            newPatient.getName(),
-            newPatient.getEmail()
+    return new CursorPagedPatientResponseDto(
+            window.getContent().stream().map(PatientMapper::toDto).toList(),
+            window.size(),
+            nextCursor,
+            includeTotal ? patientRepository.count(filter) : null
     );
+  }
 
-    kafkaProducer.sendEvent(newPatient);
+  private static Specification<Patient> nameContains(String searchValue) {
+    if (searchValue == null || searchValue.isBlank()) {
+      return (root, query, cb) -> cb.conjunction();
+    }
+    // same matching as PatientSearchService, % and _ in the value are literal
+    String pattern = PatientSearchService.likePattern(searchValue);
+    return (root, query, cb) -> cb.like(cb.lower(root.get("name")), pattern, '\\');
+  }
+
+  // any write can shift rows between pages, so every cached page is dropped
+  @CacheEvict(value = {"patients", "patientSearch"}, allEntries = true)
+  public PatientResponseDTO createPatient (PatientRequestDTO patientRequestDTO) {
+    Patient newPatient = persistNewPatient(patientRequestDTO);
+    billingStatusRepository.save(new PatientBillingStatus(newPatient.getId(), "PENDING", null));
+
+    recordBillingStatus(newPatient.getId(), createBillingAccount(newPatient).join());
+
+    return PatientMapper.toDto(newPatient);
+  }
+
+  /**
+   * Persists the patient and returns straight away. The billing call is not
+   * waited on; its outcome is recorded on a virtual thread and is available
+   * later through {@link #getBillingStatus(UUID)}. While billing-service is down
+   * that outcome is PENDING, until billing-service drains the fallback event and
+   * reports the account through {@link #recordBillingAccount}.
+   */
+  @CacheEvict(value = {"patients", "patientSearch"}, allEntries = true)
+  public PatientResponseDTO createPatientAsync (PatientRequestDTO patientRequestDTO) {
+    Patient newPatient = persistNewPatient(patientRequestDTO);
+    UUID id = newPatient.getId();
+    billingStatusRepository.save(new PatientBillingStatus(id, "PENDING", null));
+
+    // only a failed billing call is FAILED, a failed status write is just logged
+    createBillingAccount(newPatient)
+            .whenCompleteAsync((response, ex) -> {
+              if (ex != null) {
+                log.error("Billing account creation failed for patient {}: {}", id, ex.getMessage());
+                updateBillingStatus(id, "FAILED", null);
+              } else {
+                recordBillingStatus(id, response);
+              }
+            }, pipelineExecutor);
 
     return PatientMapper.toDto(newPatient);
   }
 
+  public BillingStatusResponseDTO getBillingStatus (UUID id) {
+    return billingStatusRepository.findById(id)
+            .map(PatientMapper::toDto)
+            .orElseThrow(() -> new PatientNotFoundException("No billing status for patient ID: " + id));
+  }
+
+  // the PATIENT_CREATED event goes to the outbox in the same transaction as the row
+  private Patient persistNewPatient (PatientRequestDTO patientRequestDTO) {
+    Patient newPatient = transactionTemplate.execute(status -> {
+      if (patientRepository.existsByEmail(patientRequestDTO.getEmail())) {
+        throw new EmailAlreadyExistsException("A patient with this email already exists" +
+                patientRequestDTO.getEmail());
+      }
+
+      Patient saved = patientRepository.save(PatientMapper.toModel(patientRequestDTO));
+      tableVersionRepository.increment(TableVersionRepository.PATIENT);
+      kafkaProducer.sendEvent(saved);
+      return saved;
+    });
+    patientSearchService.indexPatient(newPatient);
+    return newPatient;
+  }
+
+  private CompletableFuture<BillingResponse> createBillingAccount (Patient patient) {
+    return billingServiceGrpcClient.createBillingAccount(
+            patient.getId().toString(),
+            patient.getName(),
+            patient.getEmail()
+    );
+  }
+
+  /** The account billing-service created after draining a fallback event. */
+  public void recordBillingAccount (UUID patientId, String status, String accountId) {
+    updateBillingStatus(patientId, status, accountId);
+  }
+
+  private void recordBillingStatus (UUID patientId, BillingResponse response) {
+    updateBillingStatus(
+            patientId,
+            response.getStatus(),
+            response.getAccountId().isEmpty() ? null : response.getAccountId()
+    );
+  }
+
+  // the row is created PENDING with the patient; the billing response and the
+  // drained-event report can arrive in either order, or after a delete
+  private void updateBillingStatus (UUID patientId, String status, String accountId) {
+    try {
+      if (billingStatusRepository.updateIfUnresolved(patientId, status, accountId, Instant.now()) == 0) {
+        log.debug("Billing status {} for patient {} not recorded, already resolved or deleted", status, patientId);
+      }
+    } catch (RuntimeException e) {
+      log.warn("Failed to record billing status {} for patient {}: {}", status, patientId, e.getMessage());
+    }
+  }
+
+  @Caching(evict = {
+          @CacheEvict(value = {"patients", "patientSearch"}, allEntries = true),
+          @CacheEvict(value = "patient", key = "#id.toString()")
+  })
   public PatientResponseDTO updatePatient (
           UUID id,
           PatientRequestDTO patientRequestDTO
   ) {
-    Patient patient = patientRepository.findById(id)
-            .orElseThrow(() -> new PatientNotFoundException("Patient not find with ID: " + id));
-    if (patientRepository.existsByEmailAndIdNot(patientRequestDTO.getEmail(), id)) {
-      throw new EmailAlreadyExistsException(
-              "A patient with this email already exists "
-                      + patientRequestDTO.getEmail());
-    }
-    patient.setName(patientRequestDTO.getName());
-    patient.setAddress(patientRequestDTO.getAddress());
-    patient.setEmail(patientRequestDTO.getEmail());
-    patient.setDateOfBirth(LocalDate.parse(patientRequestDTO.getDateOfBirth()));
+    Patient updatedPatient = transactionTemplate.execute(status -> {
+      Patient patient = patientRepository.findById(id)
+              .orElseThrow(() -> new PatientNotFoundException("Patient not find with ID: " + id));
+      if (patientRepository.existsByEmailAndIdNot(patientRequestDTO.getEmail(), id)) {
+        throw new EmailAlreadyExistsException(
+                "A patient with this email already exists "
+                        + patientRequestDTO.getEmail());
+      }
+      patient.setName(patientRequestDTO.getName());
+      patient.setAddress(patientRequestDTO.getAddress());
+      patient.setEmail(patientRequestDTO.getEmail());
+      patient.setDateOfBirth(LocalDate.parse(patientRequestDTO.getDateOfBirth()));
 
-    Patient updatedPatient = patientRepository.save(patient);
+      // flush now so the version is bumped before it goes on the event
+      Patient saved = patientRepository.saveAndFlush(patient);
+      tableVersionRepository.increment(TableVersionRepository.PATIENT);
+      kafkaProducer.sendUpdatedEvent(saved);
+      return saved;
+    });
+    patientSearchService.indexPatient(updatedPatient);
     return PatientMapper.toDto(updatedPatient);
   }
 
+  @Caching(evict = {
+          @CacheEvict(value = {"patients", "patientSearch"}, allEntries = true),
+          @CacheEvict(value = "patient", key = "#id.toString()")
+  })
   public void deletePatient (UUID id) {
-    patientRepository.deleteById(id);
+    transactionTemplate.executeWithoutResult(status ->
+            patientRepository.findById(id).ifPresent(patient -> {
+              patientRepository.delete(patient);
+              billingStatusRepository.deleteById(id);
+              tableVersionRepository.increment(TableVersionRepository.PATIENT);
+              kafkaProducer.sendDeletedEvent(patient);
+            }));
+    patientSearchService.removePatient(id);
   }
 }
@@ -0,0 +1,6 @@
+-- PostgreSQL only (spring.sql.init.platform=postgresql): trigram index so
+-- lower(name) LIKE '%term%' searches do not scan the whole table
+CREATE EXTENSION IF NOT EXISTS pg_trgm;
+
+CREATE INDEX IF NOT EXISTS idx_patient_name_trgm
+    ON patient USING gin (lower(name) gin_trgm_ops);
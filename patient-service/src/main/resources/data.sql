@@ -6,9 +6,49 @@ CREATE TABLE IF NOT EXISTS patient
     email           VARCHAR(255) UNIQUE NOT NULL,
     address         VARCHAR(255)        NOT NULL,
     date_of_birth   DATE                NOT NULL,
-    registered_date DATE                NOT NULL
+    registered_date DATE                NOT NULL,
+    version         BIGINT              NOT NULL DEFAULT 0
     );
 
+-- Per-patient version carried on PatientEvent, for tables created before it existed
+ALTER TABLE patient ADD COLUMN IF NOT EXISTS version BIGINT NOT NULL DEFAULT 0;
+
+CREATE TABLE IF NOT EXISTS patient_billing_status
+(
+    patient_id UUID PRIMARY KEY,
+    status     VARCHAR(255) NOT NULL,
+    account_id VARCHAR(255),
+    updated_at TIMESTAMP WITH TIME ZONE NOT NULL
+    );
+
+-- Transactional outbox drained by OutboxRelay
+CREATE TABLE IF NOT EXISTS outbox_event
+(
+    id           BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    topic        VARCHAR(255)             NOT NULL,
+    aggregate_id VARCHAR(255)             NOT NULL,
+    payload      BYTEA                    NOT NULL,
+    created_at   TIMESTAMP WITH TIME ZONE NOT NULL
+    );
+
+-- Per-table modification counters, the version behind the patient list ETag.
+-- Starts at 1, pages cached without a version read back as 0 and get no ETag.
+CREATE TABLE IF NOT EXISTS table_version
+(
+    table_name VARCHAR(64) PRIMARY KEY,
+    version    BIGINT      NOT NULL
+    );
+
+INSERT INTO table_version (table_name, version)
+SELECT 'patient', 1
+    WHERE NOT EXISTS (SELECT 1 FROM table_version WHERE table_name = 'patient');
+
+-- Composite (sort field, id) indexes backing keyset pagination
+CREATE INDEX IF NOT EXISTS idx_patient_name_id ON patient (name, id);
+CREATE INDEX IF NOT EXISTS idx_patient_address_id ON patient (address, id);
+CREATE INDEX IF NOT EXISTS idx_patient_date_of_birth_id ON patient (date_of_birth, id);
+CREATE INDEX IF NOT EXISTS idx_patient_registered_date_id ON patient (registered_date, id);
+
 -- Insert well-known UUIDs for specific patients
 INSERT INTO patient (id, name, email, address, date_of_birth, registered_date)
 SELECT '123e4567-e89b-12d3-a456-426614174000',
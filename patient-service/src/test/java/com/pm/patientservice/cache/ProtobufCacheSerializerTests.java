@@ -0,0 +1,77 @@
+package com.pm.patientservice.cache;
+
+import com.pm.patientservice.dto.PagedPatientResponseDto;
+import com.pm.patientservice.dto.PatientResponseDTO;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.serializer.RedisSerializer;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ProtobufCacheSerializerTests {
+
+	private final RedisSerializer<Object> json = RedisCacheConfig.jsonSerializer();
+
+	@Test
+	void roundTripsPatientPage() {
+		ProtobufCacheSerializer serializer = new ProtobufCacheSerializer(json, -1);
+		PagedPatientResponseDto page = page(10);
+		page.setVersion(42);
+
+		PagedPatientResponseDto result = (PagedPatientResponseDto) serializer.deserialize(serializer.serialize(page));
+
+		assertThat(result).usingRecursiveComparison().isEqualTo(page);
+	}
+
+	@Test
+	void roundTripsCompressedPageAndKeepsNullFields() {
+		ProtobufCacheSerializer serializer = new ProtobufCacheSerializer(json, 0);
+		PagedPatientResponseDto page = page(50);
+		page.getPatients().get(0).setAddress(null);
+
+		PagedPatientResponseDto result = (PagedPatientResponseDto) serializer.deserialize(serializer.serialize(page));
+
+		assertThat(result).usingRecursiveComparison().isEqualTo(page);
+		assertThat(result.getPatients().get(0).getAddress()).isNull();
+	}
+
+	@Test
+	void readsEntriesWrittenByJsonSerializer() {
+		ProtobufCacheSerializer serializer = new ProtobufCacheSerializer(json, 1024);
+		PagedPatientResponseDto page = page(3);
+
+		Object result = serializer.deserialize(json.serialize(page));
+
+		assertThat(result).usingRecursiveComparison().isEqualTo(page);
+		assertThat(serializer.deserialize(serializer.serialize("plain"))).isEqualTo("plain");
+	}
+
+	@Test
+	void isSmallerThanJson() {
+		PagedPatientResponseDto page = page(10);
+
+		int jsonBytes = json.serialize(page).length;
+		int protobufBytes = new ProtobufCacheSerializer(json, -1).serialize(page).length;
+		int compressedBytes = new ProtobufCacheSerializer(json, 0).serialize(page).length;
+
+		assertThat(protobufBytes).isLessThan(jsonBytes * 2 / 3);
+		assertThat(compressedBytes).isLessThan(jsonBytes);
+	}
+
+	private static PagedPatientResponseDto page(int size) {
+		List<PatientResponseDTO> patients = new ArrayList<>();
+		for (int i = 0; i < size; i++) {
+			PatientResponseDTO patient = new PatientResponseDTO();
+			patient.setId(UUID.randomUUID().toString());
+			patient.setName("Patient " + i);
+			patient.setEmail("patient" + i + "@example.com");
+			patient.setAddress(i + " Main Street, Springfield");
+			patient.setDateOfBirth("1985-06-15");
+			patients.add(patient);
+		}
+		return new PagedPatientResponseDto(patients, 1, size, 5, size * 5);
+	}
+}
@@ -0,0 +1,72 @@
+package com.pm.patientservice.search;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PatientNameIndexTests {
+
+	private static final UUID ALICE = UUID.fromString("00000000-0000-0000-0000-000000000001");
+	private static final UUID ALINA = UUID.fromString("00000000-0000-0000-0000-000000000002");
+	private static final UUID BOB = UUID.fromString("00000000-0000-0000-0000-000000000003");
+	private static final UUID OTHER_ALICE = UUID.fromString("00000000-0000-0000-0000-000000000004");
+
+	@Test
+	void findsSubstringsIgnoringCase() {
+		PatientNameIndex index = new PatientNameIndex();
+		index.put(ALICE, "Alice Smith");
+		index.put(ALINA, "Alina Smithers");
+		index.put(BOB, "Bob Jones");
+
+		assertThat(index.search("SMITH")).containsExactlyInAnyOrder(ALICE, ALINA);
+		assertThat(index.search("ice smi")).containsExactly(ALICE);
+		assertThat(index.search("smithx")).isEmpty();
+		assertThat(index.search("xyz")).isEmpty();
+	}
+
+	@Test
+	void shortQueriesScanTheNames() {
+		PatientNameIndex index = new PatientNameIndex();
+		index.put(ALICE, "Alice Smith");
+		index.put(BOB, "Bob Jones");
+
+		assertThat(index.search("o")).containsExactly(BOB);
+		assertThat(index.search("AL")).containsExactly(ALICE);
+		assertThat(index.search("")).containsExactlyInAnyOrder(ALICE, BOB);
+	}
+
+	@Test
+	void putReplacesTheOldNameAndRemoveDropsIt() {
+		PatientNameIndex index = new PatientNameIndex();
+		index.put(ALICE, "Alice Smith");
+		index.put(BOB, "Bob Smith");
+
+		index.put(ALICE, "Alice Brown");
+		assertThat(index.search("smith")).containsExactly(BOB);
+		assertThat(index.search("brown")).containsExactly(ALICE);
+		assertThat(index.size()).isEqualTo(2);
+
+		index.remove(BOB);
+		index.remove(BOB);
+		assertThat(index.search("smith")).isEmpty();
+		assertThat(index.search("b")).containsExactly(ALICE);
+		assertThat(index.size()).isEqualTo(1);
+	}
+
+	@Test
+	void sortsMatchesByStoredNameThenId() {
+		PatientNameIndex index = new PatientNameIndex();
+		index.put(BOB, "Bob Smith");
+		index.put(OTHER_ALICE, "Alice Smith");
+		index.put(ALINA, "Alina Smith");
+		index.put(ALICE, "Alice Smith");
+		index.put(UUID.randomUUID(), "Carol Jones");
+
+		assertThat(index.searchSortedByName("smith", false)).containsExactly(ALICE, OTHER_ALICE, ALINA, BOB);
+		// only the name order is reversed, equal names stay in id order
+		assertThat(index.searchSortedByName("smith", true)).containsExactly(BOB, ALINA, ALICE, OTHER_ALICE);
+		assertThat(index.searchSortedByName("nobody", false)).isEmpty();
+	}
+}
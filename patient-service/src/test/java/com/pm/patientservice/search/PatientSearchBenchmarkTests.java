@@ -0,0 +1,96 @@
+package com.pm.patientservice.search;
+
+import com.pm.patientservice.repository.PatientRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Search latency against table size for both engines. Every name carries one of
+ * 100 family names, so a family name matches 1% of the rows. On H2 the
+ * DATABASE engine has no pg_trgm index and scans the table, which is what it
+ * does on PostgreSQL without data-postgresql.sql. Run with
+ * {@code mvn test -Dtest=PatientSearchBenchmarkTests -Dsearch.benchmark=true [-Dsearch.rows=1000,10000,100000]}.
+ */
+@SpringBootTest
+@EnabledIfSystemProperty(named = "search.benchmark", matches = "true")
+class PatientSearchBenchmarkTests {
+
+	private static final int WARMUP = 20;
+	private static final int RUNS = 100;
+
+	@Autowired
+	private PatientRepository patientRepository;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@Test
+	void latencyAgainstRows() {
+		int[] steps = Arrays.stream(System.getProperty("search.rows", "1000,10000,100000").split(","))
+				.mapToInt(Integer::parseInt)
+				.toArray();
+		Pageable byName = PageRequest.of(0, 20, Sort.by("name"));
+		Pageable byEmail = PageRequest.of(0, 20, Sort.by("email"));
+
+		System.out.printf("%8s %-8s %12s %12s%n", "rows", "engine", "by name ms", "by email ms");
+		int inserted = 0;
+		for (int rows : steps) {
+			insert(inserted, rows);
+			inserted = rows;
+			for (PatientSearchService.Engine engine : PatientSearchService.Engine.values()) {
+				PatientSearchService service =
+						new PatientSearchService(patientRepository, engine, 1000, new SimpleMeterRegistry());
+				service.buildIndex();
+				assertThat(service.search("family07", byName).getTotalElements()).isGreaterThanOrEqualTo(rows / 100);
+				System.out.printf("%8d %-8s %12.3f %12.3f%n", rows, engine,
+						meanMillis(service, byName), meanMillis(service, byEmail));
+			}
+		}
+	}
+
+	private static double meanMillis(PatientSearchService service, Pageable pageable) {
+		for (int i = 0; i < WARMUP; i++) {
+			service.search("family" + String.format("%02d", i % 100), pageable);
+		}
+		long start = System.nanoTime();
+		for (int i = 0; i < RUNS; i++) {
+			service.search("family" + String.format("%02d", (i * 7) % 100), pageable);
+		}
+		return (System.nanoTime() - start) / 1e6 / RUNS;
+	}
+
+	private void insert(int from, int to) {
+		List<Object[]> batch = new ArrayList<>();
+		for (int i = from; i < to; i++) {
+			batch.add(new Object[]{
+					UUID.randomUUID(),
+					"Patient" + i + " Family" + String.format("%02d", i % 100),
+					"bench" + i + "@example.com",
+					i + " Bench Street",
+					Date.valueOf(LocalDate.of(1950, 1, 1).plusDays(i % 20000)),
+					Date.valueOf(LocalDate.of(2024, 1, 1))
+			});
+			if (batch.size() == 1000 || i == to - 1) {
+				jdbcTemplate.batchUpdate("insert into patient (id, name, email, address, date_of_birth, registered_date, version) "
+						+ "values (?, ?, ?, ?, ?, ?, 0)", batch);
+				batch.clear();
+			}
+		}
+	}
+}
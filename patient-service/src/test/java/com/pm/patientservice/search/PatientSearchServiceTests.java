@@ -0,0 +1,116 @@
+package com.pm.patientservice.search;
+
+import com.pm.patientservice.model.Patient;
+import com.pm.patientservice.repository.PatientRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class PatientSearchServiceTests {
+
+	private final PatientRepository repository = mock(PatientRepository.class);
+
+	@Test
+	void pagesNameSortedMatchesFromTheIndexAndLoadsOnlyThatPage() {
+		PatientSearchService service = service(PatientSearchService.Engine.MEMORY, 1000);
+		List<Patient> patients = new ArrayList<>();
+		for (int i = 0; i < 5; i++) {
+			patients.add(patient("Smith " + i));
+		}
+		patients.forEach(service::indexPatient);
+		service.indexPatient(patient("Jones"));
+		// the repository hands rows back in no particular order
+		when(repository.findAllById(List.of(patients.get(2).getId(), patients.get(3).getId())))
+				.thenReturn(List.of(patients.get(3), patients.get(2)));
+
+		Page<Patient> page = service.search("SMITH", PageRequest.of(1, 2, Sort.by("name")));
+
+		assertThat(page.getContent()).containsExactly(patients.get(2), patients.get(3));
+		assertThat(page.getTotalElements()).isEqualTo(5);
+		verify(repository, never()).searchByName(any(), any());
+	}
+
+	@Test
+	void pagesPastTheLastMatchWithoutQuerying() {
+		PatientSearchService service = service(PatientSearchService.Engine.MEMORY, 1000);
+		service.indexPatient(patient("Smith"));
+
+		Page<Patient> page = service.search("smith", PageRequest.of(3, 10, Sort.by(Sort.Direction.DESC, "name")));
+
+		assertThat(page.getContent()).isEmpty();
+		assertThat(page.getTotalElements()).isEqualTo(1);
+		verify(repository, never()).findAllById(any());
+	}
+
+	@Test
+	void passesMatchingIdsToAnInQueryForOtherSorts() {
+		PatientSearchService service = service(PatientSearchService.Engine.MEMORY, 2);
+		Patient first = patient("Smith");
+		Patient second = patient("Smithers");
+		service.indexPatient(first);
+		service.indexPatient(second);
+		service.indexPatient(patient("Jones"));
+		Pageable byEmail = PageRequest.of(0, 10, Sort.by("email"));
+		when(repository.findByIdIn(Set.of(first.getId(), second.getId()), byEmail))
+				.thenReturn(new PageImpl<>(List.of(first, second), byEmail, 2));
+
+		assertThat(service.search("smith", byEmail).getContent()).containsExactly(first, second);
+		verify(repository, never()).searchByName(any(), any());
+	}
+
+	@Test
+	void fallsBackToTheDatabaseAboveMaxIds() {
+		PatientSearchService service = service(PatientSearchService.Engine.MEMORY, 2);
+		for (int i = 0; i < 3; i++) {
+			service.indexPatient(patient("Smith_" + i));
+		}
+		Pageable byEmail = PageRequest.of(0, 10, Sort.by("email"));
+		when(repository.searchByName("%smith\\_%", byEmail)).thenReturn(Page.empty(byEmail));
+
+		service.search("Smith_", byEmail);
+
+		verify(repository).searchByName("%smith\\_%", byEmail);
+		verify(repository, never()).findByIdIn(anyCollection(), any());
+	}
+
+	@Test
+	void databaseEngineAlwaysQueriesByName() {
+		PatientSearchService service = service(PatientSearchService.Engine.DATABASE, 1000);
+		service.indexPatient(patient("Smith"));
+		Pageable byName = PageRequest.of(0, 10, Sort.by("name"));
+
+		service.search("smith", byName);
+
+		verify(repository).searchByName(eq("%smith%"), eq(byName));
+		verify(repository, never()).findAllById(any());
+	}
+
+	private PatientSearchService service(PatientSearchService.Engine engine, int maxIds) {
+		return new PatientSearchService(repository, engine, maxIds, new SimpleMeterRegistry());
+	}
+
+	private static Patient patient(String name) {
+		Patient patient = new Patient();
+		patient.setId(UUID.randomUUID());
+		patient.setName(name);
+		return patient;
+	}
+}